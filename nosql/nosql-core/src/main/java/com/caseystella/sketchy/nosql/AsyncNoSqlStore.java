@@ -0,0 +1,16 @@
+package com.caseystella.sketchy.nosql;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The asynchronous counterpart of {@link NoSqlStore}, whose writes and reads complete in the
+ * background so that the caller is not held up by the latency of the store. It is not itself a
+ * NoSqlStore. Failures, e.g. an
+ * {@link com.caseystella.sketchy.nosql.exception.UnableToPutException}, complete the future
+ * exceptionally rather than being thrown.
+ */
+public interface AsyncNoSqlStore {
+  CompletableFuture<Void> putAsync(Batch batch);
+
+  CompletableFuture<Batch> getAsync(Iterable<Key> keys);
+}
@@ -99,8 +99,9 @@ public class Key implements KryoSerializable {
       return false;
     }
     Key key = (Key) o;
-    return timestampBin == key.timestampBin && dataType == key.dataType
-        && Objects.equals(streamId, key.streamId) && Objects.equals(columnName, key.columnName);
+    return Objects.equals(timestampBin, key.timestampBin)
+        && Objects.equals(dataType, key.dataType) && Objects.equals(streamId, key.streamId)
+        && Objects.equals(columnName, key.columnName);
   }
 
   @Override
@@ -0,0 +1,240 @@
+package com.caseystella.sketchy.nosql;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+
+/**
+ * An order-preserving binary encoding of a {@link Key}, for stores which keep their keys sorted as
+ * raw bytes, such as LSM trees and B-trees. Comparing two encoded keys byte by byte, unsigned,
+ * gives the same order as comparing their streamId, then columnName, then dataType and finally
+ * timestampBin, so a range of time within a column is a contiguous range of encoded keys and can
+ * be served by a single seek and scan.
+ *
+ * <p>
+ * A key is encoded as
+ * <ul>
+ * <li>the streamId and then the columnName, each as UTF-8 with any 0x00 byte escaped as 0x00 0xFF
+ * and ended by 0x00 0x01, so that a name sorts before any longer name it is a prefix of.</li>
+ * <li>the dataType, as 2 bytes big-endian with the sign bit flipped so that negatives sort
+ * first.</li>
+ * <li>the timestampBin, as 8 bytes big-endian with the sign bit flipped.</li>
+ * </ul>
+ * The names are compared by their UTF-8 bytes, i.e. by code point, which only differs from
+ * {@link String#compareTo(String)} for characters outside the Basic Multilingual Plane.
+ * {@link #KEY_ORDER} is the same order over keys which have not been encoded.
+ *
+ * <p>
+ * As the dataType and timestampBin are a fixed width tail, they can be read from an encoded key
+ * without decoding, or allocating, anything else. Decoding the names only allocates the strings
+ * themselves.
+ */
+public final class KeyCodec {
+  private static final int ESCAPE = 0x00;
+  private static final int ESCAPED_ZERO = 0xFF;
+  private static final int TERMINATOR = 0x01;
+  private static final int TAIL_BYTES = Short.BYTES + Long.BYTES;
+
+  /**
+   * Orders encoded keys, and their prefixes, by their unsigned bytes.
+   */
+  public static final Comparator<byte[]> COMPARATOR = KeyCodec::compare;
+
+  /**
+   * Orders keys as their encodings are ordered by {@link #COMPARATOR}, without encoding them, for
+   * stores which keep their keys sorted as objects.
+   */
+  public static final Comparator<Key> KEY_ORDER = KeyCodec::compareKeys;
+
+  private KeyCodec() {}
+
+  public static byte[] encode(Key key) {
+    return encode(key.getStreamId(), key.getColumnName(), key.getDataType(),
+        key.getTimestampBin());
+  }
+
+  public static byte[] encode(String streamId, String columnName, short dataType,
+      long timestampBin) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(
+        2 * (streamId.length() + columnName.length()) + 2 * Short.BYTES + TAIL_BYTES);
+    writeName(out, streamId);
+    writeName(out, columnName);
+    writeShort(out, dataType);
+    writeLong(out, timestampBin);
+    return out.toByteArray();
+  }
+
+  /**
+   * The prefix shared by every encoded key of a column, to seek to the start of it.
+   */
+  public static byte[] encodePrefix(String streamId, String columnName, short dataType) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(
+        2 * (streamId.length() + columnName.length()) + 3 * Short.BYTES);
+    writeName(out, streamId);
+    writeName(out, columnName);
+    writeShort(out, dataType);
+    return out.toByteArray();
+  }
+
+  private static void writeName(ByteArrayOutputStream out, String name) {
+    for (byte b : name.getBytes(StandardCharsets.UTF_8)) {
+      out.write(b);
+      if (b == ESCAPE) {
+        out.write(ESCAPED_ZERO);
+      }
+    }
+    out.write(ESCAPE);
+    out.write(TERMINATOR);
+  }
+
+  private static void writeShort(ByteArrayOutputStream out, short v) {
+    int flipped = v ^ Short.MIN_VALUE;
+    out.write(flipped >>> 8);
+    out.write(flipped);
+  }
+
+  private static void writeLong(ByteArrayOutputStream out, long v) {
+    long flipped = v ^ Long.MIN_VALUE;
+    for (int shift = Long.SIZE - Byte.SIZE; shift >= 0; shift -= Byte.SIZE) {
+      out.write((int) (flipped >>> shift));
+    }
+  }
+
+  public static Key decode(byte[] encoded) {
+    int streamIdEnd = nameEnd(encoded, 0);
+    int columnNameEnd = nameEnd(encoded, streamIdEnd + 2);
+    if (encoded.length - columnNameEnd - 2 != TAIL_BYTES) {
+      throw new IllegalArgumentException("Not an encoded key: " + encoded.length + " bytes with "
+          + (encoded.length - columnNameEnd - 2) + " after the names");
+    }
+    return new Key(decodeTimestampBin(encoded), readName(encoded, 0, streamIdEnd),
+        readName(encoded, streamIdEnd + 2, columnNameEnd), decodeDataType(encoded));
+  }
+
+  /**
+   * @return The index of the terminator of the name starting at an index.
+   */
+  private static int nameEnd(byte[] encoded, int start) {
+    for (int i = start; i + 1 < encoded.length; ++i) {
+      if (encoded[i] == ESCAPE) {
+        if ((encoded[i + 1] & 0xff) == TERMINATOR) {
+          return i;
+        }
+        // skip the escaped zero
+        ++i;
+      }
+    }
+    throw new IllegalArgumentException("Not an encoded key: a name is not terminated");
+  }
+
+  private static String readName(byte[] encoded, int start, int end) {
+    int zeros = 0;
+    for (int i = start; i < end; ++i) {
+      if (encoded[i] == ESCAPE) {
+        ++zeros;
+        ++i;
+      }
+    }
+    if (zeros == 0) {
+      // the common case, which is decoded straight out of the encoded key
+      return new String(encoded, start, end - start, StandardCharsets.UTF_8);
+    }
+    byte[] name = new byte[end - start - zeros];
+    for (int i = start, j = 0; i < end; ++i) {
+      name[j++] = encoded[i];
+      if (encoded[i] == ESCAPE) {
+        ++i;
+      }
+    }
+    return new String(name, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * The timestampBin of an encoded key, read without decoding the rest of it.
+   */
+  public static long decodeTimestampBin(byte[] encoded) {
+    long v = 0;
+    for (int i = encoded.length - Long.BYTES; i < encoded.length; ++i) {
+      v = (v << Byte.SIZE) | (encoded[i] & 0xff);
+    }
+    return v ^ Long.MIN_VALUE;
+  }
+
+  /**
+   * The dataType of an encoded key, read without decoding the rest of it.
+   */
+  public static short decodeDataType(byte[] encoded) {
+    int i = encoded.length - TAIL_BYTES;
+    return (short) ((((encoded[i] & 0xff) << 8) | (encoded[i + 1] & 0xff)) ^ Short.MIN_VALUE);
+  }
+
+  /**
+   * @return Whether an encoded key starts with a prefix, e.g. from
+   *         {@link #encodePrefix(String, String, short)}.
+   */
+  public static boolean startsWith(byte[] encoded, byte[] prefix) {
+    if (encoded.length < prefix.length) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length; ++i) {
+      if (encoded[i] != prefix[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int compareKeys(Key left, Key right) {
+    int ret = compareNames(left.getStreamId(), right.getStreamId());
+    if (ret == 0) {
+      ret = compareNames(left.getColumnName(), right.getColumnName());
+    }
+    if (ret == 0) {
+      ret = Short.compare(left.getDataType(), right.getDataType());
+    }
+    if (ret == 0) {
+      ret = Long.compare(left.getTimestampBin(), right.getTimestampBin());
+    }
+    return ret;
+  }
+
+  /**
+   * Compare two names by code point, which is the order of their UTF-8 bytes. UTF-16 only puts
+   * them in a different order where the first difference is between a surrogate and a character
+   * from 0xE000 up, which sort below the surrogates by code point, so those are shifted past them.
+   */
+  static int compareNames(String left, String right) {
+    int length = Math.min(left.length(), right.length());
+    for (int i = 0; i < length; ++i) {
+      char a = left.charAt(i);
+      char b = right.charAt(i);
+      if (a != b) {
+        if (a >= Character.MIN_SURROGATE && b >= Character.MIN_SURROGATE) {
+          a = codePointOrder(a);
+          b = codePointOrder(b);
+        }
+        return a - b;
+      }
+    }
+    return left.length() - right.length();
+  }
+
+  private static char codePointOrder(char c) {
+    return (char) (Character.isSurrogate(c) ? c + 0x2000 : c - 0x800);
+  }
+
+  /**
+   * Compare two byte arrays lexicographically, treating the bytes as unsigned.
+   */
+  public static int compare(byte[] left, byte[] right) {
+    int length = Math.min(left.length, right.length);
+    for (int i = 0; i < length; ++i) {
+      int a = left[i] & 0xff;
+      int b = right[i] & 0xff;
+      if (a != b) {
+        return a - b;
+      }
+    }
+    return left.length - right.length;
+  }
+}
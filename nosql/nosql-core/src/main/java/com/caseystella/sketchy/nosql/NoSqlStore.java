@@ -3,6 +3,7 @@ package com.caseystella.sketchy.nosql;
 import com.caseystella.sketchy.nosql.exception.StoreInitializationException;
 import com.caseystella.sketchy.nosql.exception.UnableToGetException;
 import com.caseystella.sketchy.nosql.exception.UnableToPutException;
+import java.util.Map;
 
 public interface NoSqlStore {
   void put(Key key, Value value) throws UnableToPutException;
@@ -13,5 +14,16 @@ public interface NoSqlStore {
 
   Batch get(Iterable<Key> keys) throws UnableToGetException;
 
+  /**
+   * Scan a column over a range of time, rather than looking up every timestampBin in it.
+   *
+   * @param fromBin The first timestampBin of the range, inclusive.
+   * @param toBin The end of the range, exclusive.
+   * @return The key and value pairs in the range, ordered by timestampBin. Stores should scan their
+   *         underlying range lazily as this is iterated, rather than fetching it all up front.
+   */
+  Iterable<Map.Entry<Key, Value>> scan(String streamId, String columnName, short dataType,
+      long fromBin, long toBin) throws UnableToGetException;
+
   void configure(NoSqlStoreConfig config) throws StoreInitializationException;
 }
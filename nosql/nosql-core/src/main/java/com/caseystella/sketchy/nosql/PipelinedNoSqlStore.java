@@ -0,0 +1,154 @@
+package com.caseystella.sketchy.nosql;
+
+import java.io.Closeable;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Adapts a synchronous {@link NoSqlStore} into an {@link AsyncNoSqlStore}, running up to a fixed
+ * number of requests against it at once. Once that many are in flight, the next request blocks the
+ * caller until one of them completes, so a slow store pushes back on its writers rather than
+ * queueing without bound.
+ *
+ * <p>
+ * With more than one request in flight the underlying store is called concurrently, so it must be
+ * thread-safe. A store which is not can still be pipelined with a limit of one.
+ *
+ * <p>
+ * Requests start in the order they are submitted but, with more than one in flight, may complete
+ * in any order. Two puts of the same key and host can therefore land in the store out of order,
+ * leaving the older value. A caller which writes the same key again before an earlier put has
+ * completed should chain the second put on the first's future, or use a limit of one.
+ */
+public class PipelinedNoSqlStore implements AsyncNoSqlStore, Closeable {
+  private final NoSqlStore store;
+  private final int maxInFlight;
+  private final Semaphore inFlight;
+  private final Executor executor;
+  // Whether the executor was created here, and so is ours to shut down
+  private final boolean ownsExecutor;
+  private volatile boolean closed = false;
+
+  /**
+   * Pipeline requests over a pool of maxInFlight threads of its own.
+   */
+  public PipelinedNoSqlStore(NoSqlStore store, int maxInFlight) {
+    this(store, maxInFlight, createExecutor(maxInFlight), true);
+  }
+
+  /**
+   * Pipeline requests over a shared executor, which is left running on close.
+   */
+  public PipelinedNoSqlStore(NoSqlStore store, int maxInFlight, Executor executor) {
+    this(store, maxInFlight, executor, false);
+  }
+
+  private PipelinedNoSqlStore(NoSqlStore store, int maxInFlight, Executor executor,
+      boolean ownsExecutor) {
+    if (maxInFlight <= 0) {
+      throw new IllegalArgumentException(
+          "The number of requests in flight must be positive: " + maxInFlight);
+    }
+    this.store = store;
+    this.maxInFlight = maxInFlight;
+    this.inFlight = new Semaphore(maxInFlight);
+    this.executor = executor;
+    this.ownsExecutor = ownsExecutor;
+  }
+
+  private static ExecutorService createExecutor(int maxInFlight) {
+    AtomicInteger threads = new AtomicInteger();
+    // an invalid maxInFlight is reported by the constructor
+    return Executors.newFixedThreadPool(Math.max(1, maxInFlight), r -> {
+      Thread t = new Thread(r, "nosql-pipeline-" + threads.incrementAndGet());
+      t.setDaemon(true);
+      return t;
+    });
+  }
+
+  public NoSqlStore getStore() {
+    return store;
+  }
+
+  /**
+   * @return The number of requests which have been submitted but not yet completed.
+   */
+  public int getInFlight() {
+    return maxInFlight - inFlight.availablePermits();
+  }
+
+  @Override
+  public CompletableFuture<Void> putAsync(Batch batch) {
+    return submit(() -> {
+      store.put(batch);
+      return null;
+    });
+  }
+
+  @Override
+  public CompletableFuture<Batch> getAsync(Iterable<Key> keys) {
+    return submit(() -> store.get(keys));
+  }
+
+  private <T> CompletableFuture<T> submit(Callable<T> request) {
+    CompletableFuture<T> ret = new CompletableFuture<>();
+    if (closed) {
+      ret.completeExceptionally(new IllegalStateException("The store has been closed"));
+      return ret;
+    }
+    try {
+      inFlight.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      ret.completeExceptionally(e);
+      return ret;
+    }
+    if (closed) {
+      // closed while waiting for a slot, and close() may have already waited for those in flight
+      inFlight.release();
+      ret.completeExceptionally(new IllegalStateException("The store has been closed"));
+      return ret;
+    }
+    try {
+      executor.execute(() -> {
+        T result = null;
+        Throwable failure = null;
+        try {
+          result = request.call();
+        } catch (Throwable t) {
+          failure = t;
+        }
+        // free the slot before completing, as whatever depends on the future may submit more
+        inFlight.release();
+        if (failure == null) {
+          ret.complete(result);
+        } else {
+          ret.completeExceptionally(failure);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      inFlight.release();
+      ret.completeExceptionally(e);
+    }
+    return ret;
+  }
+
+  /**
+   * Wait for the requests in flight to complete and refuse any more.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    inFlight.acquireUninterruptibly(maxInFlight);
+    inFlight.release(maxInFlight);
+    if (ownsExecutor) {
+      ((ExecutorService) executor).shutdown();
+    }
+  }
+}
@@ -0,0 +1,336 @@
+package com.caseystella.sketchy.nosql;
+
+import com.caseystella.sketchy.nosql.exception.StoreInitializationException;
+import com.caseystella.sketchy.nosql.exception.UnableToGetException;
+import com.caseystella.sketchy.nosql.exception.UnableToPutException;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A write-behind buffer in front of a {@link NoSqlStore}. Puts return as soon as they are buffered,
+ * and a background thread writes them to the store as a single {@link Batch} once enough have built
+ * up or enough time has passed, whichever comes first.
+ *
+ * <p>
+ * Repeated puts to the same key from the same host are coalesced while they wait, keeping only the
+ * value with the latest compute timestamp, so a hot key which is flushed over and over is written
+ * once per batch rather than once per flush. Once the buffer holds maxPending values, puts of new
+ * ones block until the background thread has taken a batch, pushing back on writers rather than
+ * growing without bound.
+ *
+ * <p>
+ * A batch which fails to be written is put back in the buffer, behind any newer values for the same
+ * key and host, and retried after the flush interval, so nothing is lost while the store is down.
+ * Puts are only ever refused for their own sake, because the store is closed or the background
+ * writer has stopped, so a put which returns has always buffered its value. A failure of the
+ * background writes is instead reported by {@link #flush()}, {@link #close()} or a read, if the
+ * retry they make fails too, and can be checked with {@link #getFailure()}. Reads flush the buffer
+ * first, so they see every write before them.
+ */
+public class WriteBehindNoSqlStore implements NoSqlStore, Closeable {
+  private final NoSqlStore store;
+  private final int maxBatchSize;
+  private final long flushIntervalNanos;
+  private final int maxPending;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition batchReady = lock.newCondition();
+  private final Condition notFull = lock.newCondition();
+  // Guarded by lock. The pending values of each key, by host.
+  private Map<Key, Map<String, Value>> pending = new LinkedHashMap<>();
+  private int numPending = 0;
+  private boolean closed = false;
+
+  // Held while writing to the store, so that batches are written in the order they were taken
+  private final Object writeLock = new Object();
+  private volatile Throwable failure;
+  private final Thread flusher;
+
+  /**
+   * @param maxBatchSize The number of values at which a batch is written.
+   * @param flushIntervalMillis The longest a value waits before its batch is written.
+   * @param maxPending The number of values at which puts block, at least maxBatchSize.
+   */
+  public WriteBehindNoSqlStore(NoSqlStore store, int maxBatchSize, long flushIntervalMillis,
+      int maxPending) {
+    if (maxBatchSize <= 0 || flushIntervalMillis <= 0) {
+      throw new IllegalArgumentException("The batch size and flush interval must be positive: "
+          + maxBatchSize + ", " + flushIntervalMillis);
+    }
+    if (maxPending < maxBatchSize) {
+      throw new IllegalArgumentException("Up to " + maxPending
+          + " pending values will never make a batch of " + maxBatchSize);
+    }
+    this.store = store;
+    this.maxBatchSize = maxBatchSize;
+    this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+    this.maxPending = maxPending;
+    this.flusher = new Thread(this::flushLoop, "nosql-write-behind");
+    flusher.setDaemon(true);
+    flusher.start();
+  }
+
+  public NoSqlStore getStore() {
+    return store;
+  }
+
+  /**
+   * @return The number of values waiting to be written.
+   */
+  public int getNumPending() {
+    lock.lock();
+    try {
+      return numPending;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return The failure of the last background write, or null if it succeeded. The values it was
+   *         writing are still buffered and will be retried.
+   */
+  public Throwable getFailure() {
+    return failure;
+  }
+
+  @Override
+  public void put(Key key, Value value) throws UnableToPutException {
+    lock.lock();
+    try {
+      while (true) {
+        if (closed) {
+          throw new UnableToPutException("The store has been closed");
+        }
+        Map<String, Value> hosts = pending.get(key);
+        Value existing = hosts == null ? null : hosts.get(value.getHostId());
+        if (existing != null) {
+          if (value.getComputeTimestamp() >= existing.getComputeTimestamp()) {
+            hosts.put(value.getHostId(), value);
+          }
+          return;
+        }
+        if (numPending < maxPending) {
+          pending.computeIfAbsent(key, k -> new LinkedHashMap<>()).put(value.getHostId(), value);
+          if (++numPending >= maxBatchSize) {
+            batchReady.signal();
+          }
+          return;
+        }
+        if (!flusher.isAlive()) {
+          // nothing would ever make room
+          throw new UnableToPutException("The background writer has stopped", failure);
+        }
+        notFull.await(flushIntervalNanos, TimeUnit.NANOSECONDS);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new UnableToPutException("Interrupted waiting for room in the buffer", e);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void put(Batch batch) throws UnableToPutException {
+    for (Map.Entry<Key, List<Value>> entry : batch.getUnderlyingBatch().entrySet()) {
+      for (Value v : entry.getValue()) {
+        put(entry.getKey(), v);
+      }
+    }
+  }
+
+  @Override
+  public Iterable<Value> get(Key key) throws UnableToGetException {
+    synchronized (writeLock) {
+      drainForRead();
+      return store.get(key);
+    }
+  }
+
+  @Override
+  public Batch get(Iterable<Key> keys) throws UnableToGetException {
+    synchronized (writeLock) {
+      drainForRead();
+      return store.get(keys);
+    }
+  }
+
+  /**
+   * Scans the store once the buffer is flushed. The cursor itself reads from the store without
+   * holding back the background writes.
+   */
+  @Override
+  public Iterable<Map.Entry<Key, Value>> scan(String streamId, String columnName, short dataType,
+      long fromBin, long toBin) throws UnableToGetException {
+    synchronized (writeLock) {
+      drainForRead();
+      return store.scan(streamId, columnName, dataType, fromBin, toBin);
+    }
+  }
+
+  @Override
+  public void configure(NoSqlStoreConfig config) throws StoreInitializationException {
+    store.configure(config);
+  }
+
+  /**
+   * Write everything buffered so far to the store, and then report any failure of the background
+   * writes which has not been reported yet.
+   */
+  public void flush() throws UnableToPutException {
+    drain();
+    checkFailure();
+  }
+
+  private void drainForRead() throws UnableToGetException {
+    try {
+      drain();
+    } catch (UnableToPutException e) {
+      throw new UnableToGetException("Unable to flush the buffer before reading", e);
+    }
+  }
+
+  /**
+   * Write the pending values to the store, putting them back in the buffer if that fails.
+   */
+  private void drain() throws UnableToPutException {
+    synchronized (writeLock) {
+      Batch batch = takeBatch();
+      if (batch == null) {
+        return;
+      }
+      try {
+        store.put(batch);
+      } catch (UnableToPutException | RuntimeException | Error e) {
+        requeue(batch);
+        throw e;
+      }
+      // the values of any failed batch have now been written
+      failure = null;
+    }
+  }
+
+  /**
+   * Put the values of a batch which failed back in the buffer. A value put since it was taken is
+   * newer, so it is kept over the one from the batch. This may take the buffer over maxPending, in
+   * which case puts of new values block until it has been written.
+   */
+  private void requeue(Batch batch) {
+    lock.lock();
+    try {
+      for (Map.Entry<Key, List<Value>> entry : batch.getUnderlyingBatch().entrySet()) {
+        Map<String, Value> hosts =
+            pending.computeIfAbsent(entry.getKey(), k -> new LinkedHashMap<>());
+        for (Value v : entry.getValue()) {
+          Value newer = hosts.get(v.getHostId());
+          if (newer == null) {
+            hosts.put(v.getHostId(), v);
+            ++numPending;
+          } else if (v.getComputeTimestamp() > newer.getComputeTimestamp()) {
+            hosts.put(v.getHostId(), v);
+          }
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return The pending values as a batch, emptying the buffer, or null if there are none.
+   */
+  private Batch takeBatch() {
+    lock.lock();
+    try {
+      if (numPending == 0) {
+        return null;
+      }
+      Batch batch = new Batch(pending.size());
+      for (Map.Entry<Key, Map<String, Value>> entry : pending.entrySet()) {
+        batch.getUnderlyingBatch().put(entry.getKey(), new ArrayList<>(entry.getValue().values()));
+      }
+      pending = new LinkedHashMap<>();
+      numPending = 0;
+      notFull.signalAll();
+      return batch;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void checkFailure() throws UnableToPutException {
+    Throwable e = failure;
+    if (e != null) {
+      failure = null;
+      throw new UnableToPutException("Unable to write a buffered batch", e);
+    }
+  }
+
+  /**
+   * Write a batch whenever one is full or the flush interval has passed. After a failure the whole
+   * interval is waited out before retrying, rather than retrying a full buffer straight away. Any
+   * throwable is caught, so that the thread outlives a failing store.
+   */
+  private void flushLoop() {
+    boolean failed = false;
+    while (true) {
+      lock.lock();
+      try {
+        long remaining = flushIntervalNanos;
+        while (!closed && (failed || numPending < maxBatchSize) && remaining > 0) {
+          remaining = batchReady.awaitNanos(remaining);
+        }
+        if (closed) {
+          // close() writes whatever is left
+          return;
+        }
+      } catch (InterruptedException e) {
+        return;
+      } finally {
+        lock.unlock();
+      }
+      try {
+        drain();
+        failed = false;
+      } catch (Throwable t) {
+        failure = t;
+        failed = true;
+      }
+    }
+  }
+
+  /**
+   * Stop the background thread and write whatever is still buffered. The underlying store is left
+   * open. If the final write fails, the values stay buffered and close can be called again to retry
+   * it.
+   *
+   * @throws IOException if the buffered values could not be written.
+   */
+  @Override
+  public void close() throws IOException {
+    lock.lock();
+    try {
+      closed = true;
+      batchReady.signalAll();
+      notFull.signalAll();
+    } finally {
+      lock.unlock();
+    }
+    try {
+      flusher.join();
+      drain();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (UnableToPutException e) {
+      throw new IOException("Unable to write the buffer on close", e);
+    }
+  }
+}
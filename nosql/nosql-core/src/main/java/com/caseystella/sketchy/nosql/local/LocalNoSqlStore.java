@@ -0,0 +1,316 @@
+package com.caseystella.sketchy.nosql.local;
+
+import com.caseystella.sketchy.nosql.Batch;
+import com.caseystella.sketchy.nosql.Key;
+import com.caseystella.sketchy.nosql.KeyCodec;
+import com.caseystella.sketchy.nosql.NoSqlStore;
+import com.caseystella.sketchy.nosql.NoSqlStoreConfig;
+import com.caseystella.sketchy.nosql.Value;
+import com.caseystella.sketchy.nosql.exception.StoreInitializationException;
+import com.caseystella.sketchy.nosql.exception.UnableToGetException;
+import com.caseystella.sketchy.nosql.exception.UnableToPutException;
+import com.caseystella.sketchy.utilities.ConversionUtils;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * An embedded, single node {@link NoSqlStore}, for edge deployments and local testing where there
+ * is no cluster to write to.
+ *
+ * <p>
+ * Records are appended to a log of fixed size, memory-mapped segment files in a directory, and a
+ * sorted in-memory index maps each key, ordered by streamId, columnName, dataType and then
+ * timestampBin, to where its values live in the log. Reads go straight to the mapped files, and
+ * {@link #getData(Key)} hands back views of the data without copying it at all. The index is
+ * rebuilt from the log when the store is opened.
+ *
+ * <p>
+ * As with the other stores, a value from the same host at the same compute timestamp replaces the
+ * one already stored for a key. Writes are serialized, while reads are lock-free and may run
+ * concurrently with them.
+ *
+ * <p>
+ * A put is durable only once {@link #flush()} (or {@link #close()}) has returned. Until then it is
+ * in the page cache, which survives the process dying but not the machine. Each record carries a
+ * checksum, so a record left half written by a crash is detected when the store is reopened and
+ * the log is cut off before it.
+ */
+public class LocalNoSqlStore implements NoSqlStore, Closeable {
+  /**
+   * The directory of the segment files, which is created if need be. Required.
+   */
+  public static final String DIRECTORY_CONFIG = "local.directory";
+  /**
+   * The size of each segment file in bytes, which bounds the size of a single record.
+   */
+  public static final String SEGMENT_SIZE_CONFIG = "local.segment.size";
+  public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+  /**
+   * The order of the index, which is that of the encoded keys, see {@link KeyCodec}.
+   */
+  public static final Comparator<Key> KEY_ORDER = KeyCodec.KEY_ORDER;
+
+  private File directory;
+  private int segmentSize;
+  // Indexed by segment id
+  private final List<Segment> segments = new CopyOnWriteArrayList<>();
+  // The locations of the values of each key, as segment id << 32 | offset. The arrays are never
+  // modified once in the index, so readers always see a consistent set of locations.
+  private final ConcurrentSkipListMap<Key, long[]> index = new ConcurrentSkipListMap<>(KEY_ORDER);
+  private Segment active;
+
+  public LocalNoSqlStore() {
+    // configured through configure()
+  }
+
+  public LocalNoSqlStore(File directory, int segmentSize) throws StoreInitializationException {
+    open(directory, segmentSize);
+  }
+
+  @Override
+  public void configure(NoSqlStoreConfig config) throws StoreInitializationException {
+    Map<String, Object> c =
+        config.getConfig() == null ? Collections.emptyMap() : config.getConfig();
+    Object dir = c.get(DIRECTORY_CONFIG);
+    if (dir == null) {
+      throw new StoreInitializationException("You must specify " + DIRECTORY_CONFIG);
+    }
+    Object size = c.get(SEGMENT_SIZE_CONFIG);
+    open(new File(dir.toString()),
+        size == null ? DEFAULT_SEGMENT_SIZE : ConversionUtils.convert(size, Integer.class));
+  }
+
+  private synchronized void open(File directory, int segmentSize)
+      throws StoreInitializationException {
+    if (segmentSize <= 0) {
+      throw new StoreInitializationException("The segment size must be positive: " + segmentSize);
+    }
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new StoreInitializationException("Unable to create " + directory);
+    }
+    this.directory = directory;
+    this.segmentSize = segmentSize;
+    segments.clear();
+    index.clear();
+    active = null;
+    String[] names = directory.list();
+    int numSegments = 0;
+    for (String name : names == null ? new String[0] : names) {
+      numSegments = Math.max(numSegments, Segment.parseId(name) + 1);
+    }
+    try {
+      for (int id = 0; id < numSegments; ++id) {
+        Segment segment = Segment.open(directory, id, segmentSize);
+        segments.add(segment);
+        segment.recover((key, offset) -> index(key, segment, offset));
+      }
+      active = numSegments == 0 ? roll() : segments.get(numSegments - 1);
+    } catch (IOException | RuntimeException e) {
+      throw new StoreInitializationException("Unable to open the segments in " + directory, e);
+    }
+  }
+
+  private Segment roll() throws IOException {
+    if (active != null) {
+      active.force();
+    }
+    Segment segment = Segment.open(directory, segments.size(), segmentSize);
+    segments.add(segment);
+    active = segment;
+    return segment;
+  }
+
+  private static long location(Segment segment, int offset) {
+    return ((long) segment.getId() << 32) | offset;
+  }
+
+  private Segment segment(long location) {
+    return segments.get((int) (location >>> 32));
+  }
+
+  private static int offset(long location) {
+    return (int) location;
+  }
+
+  /**
+   * Point a key at a newly appended record, replacing any value from the same host and compute
+   * timestamp.
+   */
+  private void index(Key key, Segment segment, int offset) {
+    long location = location(segment, offset);
+    long[] existing = index.get(key);
+    long[] locations;
+    if (existing == null) {
+      locations = new long[] {location};
+    } else {
+      int replaced = -1;
+      for (int i = 0; i < existing.length && replaced < 0; ++i) {
+        if (segment(existing[i]).isSameColumn(offset(existing[i]), segment, offset)) {
+          replaced = i;
+        }
+      }
+      if (replaced >= 0) {
+        locations = existing.clone();
+        locations[replaced] = location;
+      } else {
+        locations = Arrays.copyOf(existing, existing.length + 1);
+        locations[existing.length] = location;
+      }
+    }
+    index.put(key, locations);
+  }
+
+  @Override
+  public synchronized void put(Key key, Value value) throws UnableToPutException {
+    if (active == null) {
+      throw new UnableToPutException("The store has not been configured");
+    }
+    int size;
+    try {
+      size = Segment.recordSize(key, value);
+    } catch (IllegalArgumentException e) {
+      throw new UnableToPutException(e.getMessage(), e);
+    }
+    if (size > segmentSize) {
+      throw new UnableToPutException("A record of " + size
+          + " bytes will not fit in a segment of " + segmentSize + " bytes");
+    }
+    try {
+      if (active.capacity() - active.position() < size) {
+        roll();
+      }
+    } catch (IOException e) {
+      throw new UnableToPutException("Unable to create a new segment in " + directory, e);
+    }
+    index(key, active, active.append(key, value));
+  }
+
+  @Override
+  public synchronized void put(Batch batch) throws UnableToPutException {
+    for (Map.Entry<Key, List<Value>> entry : batch.getUnderlyingBatch().entrySet()) {
+      for (Value v : entry.getValue()) {
+        put(entry.getKey(), v);
+      }
+    }
+  }
+
+  @Override
+  public Iterable<Value> get(Key key) throws UnableToGetException {
+    long[] locations = index.get(key);
+    if (locations == null) {
+      return Collections.emptyList();
+    }
+    List<Value> ret = new ArrayList<>(locations.length);
+    for (long location : locations) {
+      ret.add(segment(location).readValue(offset(location)));
+    }
+    return ret;
+  }
+
+  /**
+   * The data of the values of a key without copying it out of the store. The buffers are read-only
+   * views of the mapped segment files, so they stay valid after the store is closed but must not be
+   * used after the store is cleared.
+   */
+  public List<ByteBuffer> getData(Key key) {
+    long[] locations = index.get(key);
+    if (locations == null) {
+      return Collections.emptyList();
+    }
+    List<ByteBuffer> ret = new ArrayList<>(locations.length);
+    for (long location : locations) {
+      ret.add(segment(location).readData(offset(location)));
+    }
+    return ret;
+  }
+
+  @Override
+  public Batch get(Iterable<Key> keys) throws UnableToGetException {
+    Set<Key> s = new LinkedHashSet<>();
+    for (Key k : keys) {
+      s.add(k);
+    }
+    Batch ret = new Batch(s.size());
+    for (Key k : s) {
+      List<Value> values = ret.getUnderlyingBatch().computeIfAbsent(k, x -> new ArrayList<>());
+      for (Value v : get(k)) {
+        values.add(v);
+      }
+    }
+    return ret;
+  }
+
+  /**
+   * A range of the index, which is read from the segments as it is iterated.
+   */
+  @Override
+  public Iterable<Map.Entry<Key, Value>> scan(String streamId, String columnName, short dataType,
+      long fromBin, long toBin) throws UnableToGetException {
+    if (fromBin >= toBin) {
+      return Collections.emptyList();
+    }
+    Map<Key, long[]> range = index.subMap(new Key(fromBin, streamId, columnName, dataType),
+        new Key(toBin, streamId, columnName, dataType));
+    return () -> range.entrySet().stream()
+        .<Map.Entry<Key, Value>>flatMap(e -> Arrays.stream(e.getValue())
+            .mapToObj(l -> new SimpleImmutableEntry<>(e.getKey(), segment(l).readValue(offset(l)))))
+        .iterator();
+  }
+
+  /**
+   * @return The number of segment files in the log.
+   */
+  public int getNumSegments() {
+    return segments.size();
+  }
+
+  /**
+   * Force everything written so far out to disk. Only the active segment can have unforced writes,
+   * as each segment is forced when the log moves on from it.
+   */
+  public synchronized void flush() {
+    if (active != null) {
+      active.force();
+    }
+  }
+
+  /**
+   * Drop everything in the store, deleting its segment files.
+   */
+  public synchronized void clear() throws IOException {
+    index.clear();
+    for (Segment segment : segments) {
+      if (!segment.getFile().delete()) {
+        throw new IOException("Unable to delete " + segment.getFile());
+      }
+    }
+    segments.clear();
+    active = null;
+    roll();
+  }
+
+  /**
+   * Flush the store and drop the index. The segments are unmapped once they are garbage collected.
+   */
+  @Override
+  public synchronized void close() {
+    flush();
+    index.clear();
+    segments.clear();
+    active = null;
+  }
+}
@@ -0,0 +1,264 @@
+package com.caseystella.sketchy.nosql.local;
+
+import com.caseystella.sketchy.nosql.Key;
+import com.caseystella.sketchy.nosql.Value;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.function.ObjIntConsumer;
+import java.util.zip.CRC32;
+
+/**
+ * A single memory-mapped, append-only segment file of a {@link LocalNoSqlStore}. Each record is
+ * laid out as
+ *
+ * <pre>
+ * int    length of the rest of the record after the checksum
+ * int    CRC32 of the rest of the record
+ * long   timestampBin
+ * short  dataType
+ * string streamId
+ * string columnName
+ * long   computeTimestamp
+ * string hostId
+ * int    length of the data, followed by the data
+ * </pre>
+ *
+ * where a string is an unsigned short length followed by its UTF-8 bytes.
+ *
+ * <p>
+ * The pages of a mapped file are written back in no particular order, so after a crash of the
+ * machine a record may be on disk only in part, e.g. its length without its data. Recovery
+ * therefore checks the checksum of each record and takes the first record which does not match as
+ * the end of the log. Records are only durable once {@link #force()} has returned; those written
+ * since may or may not survive a crash of the machine, though a crash of the process alone loses
+ * nothing.
+ *
+ * <p>
+ * Appends must be serialized by the caller, but any number of threads may read concurrently.
+ */
+final class Segment {
+  private static final int MAX_STRING_BYTES = 0xffff;
+  // The length and checksum
+  private static final int RECORD_HEADER_BYTES = 2 * Integer.BYTES;
+
+  private final int id;
+  private final File file;
+  private final MappedByteBuffer buffer;
+  // Only used by the single writer, so that readers can take their own views of the buffer
+  private final ByteBuffer writer;
+
+  private Segment(int id, File file, int size) throws IOException {
+    this.id = id;
+    this.file = file;
+    // the mapping outlives the channel which created it
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      this.buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+    this.writer = buffer.duplicate();
+  }
+
+  /**
+   * Create an empty segment, or map an existing one at its current size.
+   */
+  static Segment open(File directory, int id, int size) throws IOException {
+    File file = new File(directory, fileName(id));
+    return new Segment(id, file, file.exists() ? (int) file.length() : size);
+  }
+
+  static String fileName(int id) {
+    return String.format("segment-%010d.log", id);
+  }
+
+  /**
+   * @return The id of the segment given its file name, or -1 if it is not a segment.
+   */
+  static int parseId(String fileName) {
+    if (!fileName.matches("segment-\\d{10}\\.log")) {
+      return -1;
+    }
+    return Integer.parseInt(fileName.substring("segment-".length(), fileName.length() - 4));
+  }
+
+  int getId() {
+    return id;
+  }
+
+  File getFile() {
+    return file;
+  }
+
+  int capacity() {
+    return buffer.capacity();
+  }
+
+  int position() {
+    return writer.position();
+  }
+
+  /**
+   * @return The number of bytes a record takes in a segment.
+   */
+  static int recordSize(Key key, Value value) {
+    return RECORD_HEADER_BYTES + Long.BYTES + Short.BYTES + stringSize(key.getStreamId())
+        + stringSize(key.getColumnName()) + Long.BYTES + stringSize(value.getHostId())
+        + Integer.BYTES + value.getData().length;
+  }
+
+  private static int stringSize(String s) {
+    int length = s.getBytes(StandardCharsets.UTF_8).length;
+    if (length > MAX_STRING_BYTES) {
+      throw new IllegalArgumentException(
+          "Strings may be at most " + MAX_STRING_BYTES + " bytes, but " + s + " is " + length);
+    }
+    return Short.BYTES + length;
+  }
+
+  /**
+   * Append a record, which must fit in the remaining space of the segment.
+   *
+   * @return The offset of the record within the segment.
+   */
+  int append(Key key, Value value) {
+    int offset = writer.position();
+    writer.position(offset + RECORD_HEADER_BYTES);
+    writer.putLong(key.getTimestampBin());
+    writer.putShort(key.getDataType());
+    putString(key.getStreamId());
+    putString(key.getColumnName());
+    writer.putLong(value.getComputeTimestamp());
+    putString(value.getHostId());
+    writer.putInt(value.getData().length);
+    writer.put(value.getData());
+    int length = writer.position() - offset - RECORD_HEADER_BYTES;
+    writer.putInt(offset + Integer.BYTES, checksum(writer, offset, length));
+    writer.putInt(offset, length);
+    return offset;
+  }
+
+  /**
+   * @return The CRC32 of the length bytes of the record at an offset which follow its header.
+   */
+  private static int checksum(ByteBuffer buffer, int offset, int length) {
+    ByteBuffer body = buffer.duplicate();
+    body.limit(offset + RECORD_HEADER_BYTES + length);
+    body.position(offset + RECORD_HEADER_BYTES);
+    CRC32 crc = new CRC32();
+    crc.update(body);
+    return (int) crc.getValue();
+  }
+
+  private void putString(String s) {
+    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    writer.putShort((short) bytes.length);
+    writer.put(bytes);
+  }
+
+  /**
+   * Scan the records of the segment from the start, leaving it positioned to append after the last
+   * whole record, i.e. the last one before a record whose length is out of bounds or whose checksum
+   * does not match.
+   *
+   * @param consumer Given the key and the offset of each record.
+   */
+  void recover(ObjIntConsumer<Key> consumer) {
+    ByteBuffer reader = buffer.duplicate();
+    int offset = 0;
+    while (offset + RECORD_HEADER_BYTES <= reader.capacity()) {
+      int length = reader.getInt(offset);
+      if (length <= 0 || length > reader.capacity() - offset - RECORD_HEADER_BYTES
+          || reader.getInt(offset + Integer.BYTES) != checksum(reader, offset, length)) {
+        break;
+      }
+      consumer.accept(readKey(reader, offset), offset);
+      offset += RECORD_HEADER_BYTES + length;
+    }
+    writer.position(offset);
+  }
+
+  private static Key readKey(ByteBuffer reader, int offset) {
+    reader.position(offset + RECORD_HEADER_BYTES);
+    long timestampBin = reader.getLong();
+    short dataType = reader.getShort();
+    String streamId = getString(reader);
+    String columnName = getString(reader);
+    return new Key(timestampBin, streamId, columnName, dataType);
+  }
+
+  /**
+   * Move a reader over the key of the record at an offset to its value.
+   */
+  private static ByteBuffer seekValue(ByteBuffer reader, int offset) {
+    reader.position(offset + RECORD_HEADER_BYTES + Long.BYTES + Short.BYTES);
+    skipString(reader);
+    skipString(reader);
+    return reader;
+  }
+
+  Value readValue(int offset) {
+    ByteBuffer reader = seekValue(buffer.duplicate(), offset);
+    long computeTimestamp = reader.getLong();
+    String hostId = getString(reader);
+    byte[] data = new byte[reader.getInt()];
+    reader.get(data);
+    return new Value(hostId, computeTimestamp, data);
+  }
+
+  /**
+   * @return Whether the record at an offset was written by the same host at the same time as the
+   *         record at another offset of another (or the same) segment, compared in place without
+   *         reading either value.
+   */
+  boolean isSameColumn(int offset, Segment other, int otherOffset) {
+    ByteBuffer reader = seekValue(buffer.duplicate(), offset);
+    ByteBuffer otherReader = seekValue(other.buffer.duplicate(), otherOffset);
+    if (reader.getLong() != otherReader.getLong()) {
+      return false;
+    }
+    int length = reader.getShort() & MAX_STRING_BYTES;
+    if ((otherReader.getShort() & MAX_STRING_BYTES) != length) {
+      return false;
+    }
+    for (int i = 0; i < length; ++i) {
+      if (reader.get() != otherReader.get()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return A read-only view of the data of the record at an offset, straight out of the mapped
+   *         file.
+   */
+  ByteBuffer readData(int offset) {
+    ByteBuffer reader = seekValue(buffer.duplicate(), offset);
+    reader.position(reader.position() + Long.BYTES);
+    skipString(reader);
+    int length = reader.getInt();
+    reader.limit(reader.position() + length);
+    return reader.slice().asReadOnlyBuffer();
+  }
+
+  private static String getString(ByteBuffer reader) {
+    byte[] bytes = new byte[reader.getShort() & MAX_STRING_BYTES];
+    reader.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static void skipString(ByteBuffer reader) {
+    int length = reader.getShort() & MAX_STRING_BYTES;
+    reader.position(reader.position() + length);
+  }
+
+  /**
+   * Force the records written so far out to disk, after which they survive a crash.
+   */
+  void force() {
+    buffer.force();
+  }
+}
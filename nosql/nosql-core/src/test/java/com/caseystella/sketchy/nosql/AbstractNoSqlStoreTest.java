@@ -101,6 +101,40 @@ public abstract class AbstractNoSqlStoreTest<T extends NoSqlStore> {
     validateStoreViaBatch();
   }
 
+  @Test
+  public void testScan() throws Exception {
+    for (Map.Entry<Key, Map.Entry<Value, Value>> entry : generateData()) {
+      getStore().put(entry.getKey(), entry.getValue().getKey());
+      getStore().put(entry.getKey(), entry.getValue().getValue());
+    }
+    Key other = new Key.Builder().withColumnName("col2").withStreamId("stream_0")
+        .withDataType((short) 0).withTimestampBin(1000).build();
+    getStore().put(other, new Value.Builder().withComputeTimestamp(0)
+        .withData(SerDeUtils.toBytes(-1)).withHostId("host_0").build());
+
+    List<Key> keys = new ArrayList<>();
+    for (Map.Entry<Key, Value> entry : getStore().scan("stream_0", "col1", (short) 0, 1000,
+        2000)) {
+      keys.add(entry.getKey());
+    }
+    assertEquals(20, keys.size());
+    for (int i = 0; i < keys.size(); ++i) {
+      assertEquals(1000 + (i / 2) * 100, keys.get(i).getTimestampBin());
+      assertEquals("col1", keys.get(i).getColumnName());
+    }
+    for (int i = 0; i < keys.size(); i += 2) {
+      Key k = keys.get(i);
+      List<Value> values = new ArrayList<>();
+      for (Map.Entry<Key, Value> entry : getStore().scan("stream_0", "col1", (short) 0,
+          k.getTimestampBin(), k.getTimestampBin() + 1)) {
+        values.add(entry.getValue());
+      }
+      validateKV(k, values);
+    }
+    assertEquals(0, Iterables.size(getStore().scan("stream_0", "col1", (short) 1, 0, 10_000)));
+    assertEquals(0, Iterables.size(getStore().scan("stream_0", "col1", (short) 0, 2000, 1000)));
+  }
+
   @Test
   public void testPutAndGetBatch() throws Exception {
     Batch b = new Batch();
@@ -9,6 +9,7 @@ import com.esotericsoftware.kryo.KryoSerializable;
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
 import com.google.common.collect.Iterables;
+import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashSet;
@@ -54,11 +55,11 @@ public class InMemoryNoSqlStore implements NoSqlStore {
     }
   }
 
-  Map<byte[], Map<byte[], byte[]>> _map = new TreeMap<>(LEXICOGRAPHIC_COMPARATOR);
+  TreeMap<byte[], Map<byte[], byte[]>> _map = new TreeMap<>(KeyCodec.COMPARATOR);
 
   @Override
   public void put(Key key, Value value) throws UnableToPutException {
-    byte[] keyBytes = SerDeUtils.toBytes(key);
+    byte[] keyBytes = KeyCodec.encode(key);
     byte[] column = SerDeUtils.toBytes(new Column(value));
     byte[] data = value.getData();
     Map<byte[], byte[]> columns =
@@ -77,7 +78,7 @@ public class InMemoryNoSqlStore implements NoSqlStore {
 
   @Override
   public Iterable<Value> get(Key key) throws UnableToGetException {
-    byte[] keyBytes = SerDeUtils.toBytes(key);
+    byte[] keyBytes = KeyCodec.encode(key);
     Map<byte[], byte[]> columnMap = _map.get(keyBytes);
     List<Value> ret = new ArrayList<>();
     if (columnMap != null) {
@@ -104,6 +105,26 @@ public class InMemoryNoSqlStore implements NoSqlStore {
     return ret;
   }
 
+  @Override
+  public Iterable<Map.Entry<Key, Value>> scan(String streamId, String columnName, short dataType,
+      long fromBin, long toBin) throws UnableToGetException {
+    List<Map.Entry<Key, Value>> ret = new ArrayList<>();
+    if (fromBin >= toBin) {
+      return ret;
+    }
+    // the encoded keys sort by time within a column, so the range is contiguous
+    for (byte[] keyBytes : _map
+        .subMap(KeyCodec.encode(streamId, columnName, dataType, fromBin),
+            KeyCodec.encode(streamId, columnName, dataType, toBin))
+        .keySet()) {
+      Key k = KeyCodec.decode(keyBytes);
+      for (Value v : get(k)) {
+        ret.add(new SimpleImmutableEntry<>(k, v));
+      }
+    }
+    return ret;
+  }
+
   public void clear() {
     _map.clear();
   }
@@ -0,0 +1,85 @@
+package com.caseystella.sketchy.nosql;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class KeyCodecTest {
+  private static Key key(String streamId, String columnName, short dataType, long bin) {
+    return new Key.Builder().withStreamId(streamId).withColumnName(columnName)
+        .withDataType(dataType).withTimestampBin(bin).build();
+  }
+
+  @Test
+  public void testRoundTrip() {
+    for (Key k : new Key[] {key("s", "c", (short) 0, 0L),
+        key("stream", "col", Short.MIN_VALUE, Long.MIN_VALUE),
+        key("stream", "col", Short.MAX_VALUE, Long.MAX_VALUE), key("", "", (short) -1, -1L),
+        key("a\u0000b", "\u0000", (short) 7, 1_500_000_000_000L),
+        key("\u00fcn\u00efc\u00f8d\u00e9", "\u5217", (short) 3, 42L)}) {
+      byte[] encoded = KeyCodec.encode(k);
+      assertEquals(k, KeyCodec.decode(encoded));
+      assertEquals(k.getTimestampBin(), KeyCodec.decodeTimestampBin(encoded));
+      assertEquals(k.getDataType(), KeyCodec.decodeDataType(encoded));
+      assertTrue(KeyCodec.startsWith(encoded,
+          KeyCodec.encodePrefix(k.getStreamId(), k.getColumnName(), k.getDataType())));
+    }
+  }
+
+  @Test
+  public void testOrderIsPreserved() {
+    List<Key> keys = new ArrayList<>();
+    // the supplementary character sorts before U+E000 and U+FFFF in UTF-16 but after them by code
+    // point
+    for (String streamId : new String[] {"", "a", "a\u0000", "a\u0000a", "ab", "b", "\uD7FF",
+        "\uE000", "\uFFFF", "\uD83D\uDE00"}) {
+      for (String columnName : new String[] {"", "x", "xy", "y"}) {
+        for (short dataType : new short[] {Short.MIN_VALUE, -1, 0, 1, Short.MAX_VALUE}) {
+          for (long bin : new long[] {Long.MIN_VALUE, -256, -1, 0, 1, 255, 256, Long.MAX_VALUE}) {
+            keys.add(key(streamId, columnName, dataType, bin));
+          }
+        }
+      }
+    }
+    for (Key left : keys) {
+      byte[] leftBytes = KeyCodec.encode(left);
+      for (Key right : keys) {
+        assertEquals(Integer.signum(KeyCodec.KEY_ORDER.compare(left, right)),
+            Integer.signum(KeyCodec.compare(leftBytes, KeyCodec.encode(right))));
+      }
+    }
+  }
+
+  @Test
+  public void testNamesByCodePoint() {
+    String supplementary = "\uD83D\uDE00";
+    assertTrue(supplementary.compareTo("\uFFFF") < 0);
+    assertTrue(KeyCodec.compareNames(supplementary, "\uFFFF") > 0);
+    assertTrue(KeyCodec.compareNames(supplementary, "\uD7FF") > 0);
+    assertTrue(KeyCodec.compareNames("\uD83D\uDE01", supplementary) > 0);
+    assertTrue(KeyCodec.compareNames("\uD83D", supplementary) < 0);
+    assertEquals(0, KeyCodec.compareNames(supplementary, supplementary));
+  }
+
+  @Test
+  public void testPrefix() {
+    byte[] prefix = KeyCodec.encodePrefix("s", "c", (short) 0);
+    assertTrue(KeyCodec.startsWith(KeyCodec.encode(key("s", "c", (short) 0, 100L)), prefix));
+    assertFalse(KeyCodec.startsWith(KeyCodec.encode(key("s", "cc", (short) 0, 100L)), prefix));
+    assertFalse(KeyCodec.startsWith(KeyCodec.encode(key("s", "c", (short) 1, 100L)), prefix));
+  }
+
+  @Test
+  public void testInvalid() {
+    assertThrows(IllegalArgumentException.class, () -> KeyCodec.decode(new byte[] {1, 2, 3}));
+    byte[] encoded = KeyCodec.encode(key("s", "c", (short) 0, 0L));
+    byte[] truncated = new byte[encoded.length - 1];
+    System.arraycopy(encoded, 0, truncated, 0, truncated.length);
+    assertThrows(IllegalArgumentException.class, () -> KeyCodec.decode(truncated));
+  }
+}
@@ -0,0 +1,151 @@
+package com.caseystella.sketchy.nosql;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.caseystella.sketchy.nosql.exception.UnableToPutException;
+import com.google.common.collect.Iterables;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+
+public class PipelinedNoSqlStoreTest {
+
+  private static Key key(long bin) {
+    return new Key.Builder().withColumnName("col").withStreamId("stream").withDataType((short) 0)
+        .withTimestampBin(bin).build();
+  }
+
+  private static Batch batch(long bin) {
+    Batch b = new Batch();
+    b.add(key(bin), new Value.Builder().withHostId("host").withComputeTimestamp(bin)
+        .withData(new byte[] {(byte) bin}).build());
+    return b;
+  }
+
+  /**
+   * Holds every put until it is let go.
+   */
+  private static class BlockingStore extends InMemoryNoSqlStore {
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @Override
+    public synchronized void put(Batch batch) throws UnableToPutException {
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        throw new UnableToPutException(e);
+      }
+      super.put(batch);
+    }
+  }
+
+  @Test
+  public void testPutAndGet() throws Exception {
+    try (PipelinedNoSqlStore store = new PipelinedNoSqlStore(new InMemoryNoSqlStore(), 1)) {
+      List<CompletableFuture<Void>> puts = new ArrayList<>();
+      List<Key> keys = new ArrayList<>();
+      for (int i = 0; i < 10; ++i) {
+        puts.add(store.putAsync(batch(i)));
+        keys.add(key(i));
+      }
+      CompletableFuture.allOf(puts.toArray(new CompletableFuture[0])).get();
+      Batch b = store.getAsync(keys).get();
+      assertEquals(10, b.getUnderlyingBatch().size());
+      for (int i = 0; i < 10; ++i) {
+        assertEquals(i, b.getUnderlyingBatch().get(key(i)).get(0).getData()[0]);
+      }
+    }
+  }
+
+  @Test
+  public void testFailure() throws Exception {
+    NoSqlStore failing = new InMemoryNoSqlStore() {
+      @Override
+      public void put(Batch batch) throws UnableToPutException {
+        throw new UnableToPutException("nope");
+      }
+    };
+    try (PipelinedNoSqlStore store = new PipelinedNoSqlStore(failing, 2)) {
+      ExecutionException e =
+          assertThrows(ExecutionException.class, () -> store.putAsync(batch(0)).get());
+      assertTrue(e.getCause() instanceof UnableToPutException);
+      assertEquals(0, store.getInFlight());
+    }
+  }
+
+  @Test
+  public void testInFlightIsBounded() throws Exception {
+    BlockingStore blocking = new BlockingStore();
+    try (PipelinedNoSqlStore store = new PipelinedNoSqlStore(blocking, 2)) {
+      CompletableFuture<Void> first = store.putAsync(batch(0));
+      CompletableFuture<Void> second = store.putAsync(batch(1));
+      assertEquals(2, store.getInFlight());
+      CountDownLatch submitted = new CountDownLatch(1);
+      Thread writer = new Thread(() -> {
+        store.putAsync(batch(2));
+        submitted.countDown();
+      });
+      writer.start();
+      // the third put has to wait for a slot
+      assertFalse(submitted.await(100, TimeUnit.MILLISECONDS));
+      blocking.release.countDown();
+      assertTrue(submitted.await(10, TimeUnit.SECONDS));
+      first.get();
+      second.get();
+    }
+    // closing waits for the third put
+    for (int i = 0; i < 3; ++i) {
+      assertEquals(1, Iterables.size(blocking.get(key(i))));
+    }
+  }
+
+  @Test
+  public void testClosed() {
+    PipelinedNoSqlStore store = new PipelinedNoSqlStore(new InMemoryNoSqlStore(), 1);
+    store.close();
+    assertThrows(ExecutionException.class, () -> store.putAsync(batch(0)).get());
+  }
+
+  @Test
+  public void testClosedWhileWaiting() throws Exception {
+    BlockingStore blocking = new BlockingStore();
+    PipelinedNoSqlStore store = new PipelinedNoSqlStore(blocking, 1);
+    CompletableFuture<Void> first = store.putAsync(batch(0));
+    AtomicReference<CompletableFuture<Void>> waiting = new AtomicReference<>();
+    Thread writer = new Thread(() -> waiting.set(store.putAsync(batch(1))));
+    writer.start();
+    awaitBlocked(writer);
+    Thread closer = new Thread(store::close);
+    closer.start();
+    awaitBlocked(closer);
+    blocking.release.countDown();
+    writer.join();
+    closer.join();
+    first.get();
+    // the slot freed by the first put went to the waiting one, which must not run after close
+    ExecutionException e = assertThrows(ExecutionException.class, () -> waiting.get().get());
+    assertTrue(e.getCause() instanceof IllegalStateException);
+    assertFalse(blocking.get(key(1)).iterator().hasNext());
+  }
+
+  private static void awaitBlocked(Thread t) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 10_000;
+    while (t.getState() != Thread.State.WAITING && System.currentTimeMillis() < deadline) {
+      Thread.sleep(1);
+    }
+  }
+
+  @Test
+  public void testInvalidLimit() {
+    assertThrows(IllegalArgumentException.class,
+        () -> new PipelinedNoSqlStore(new InMemoryNoSqlStore(), 0));
+  }
+}
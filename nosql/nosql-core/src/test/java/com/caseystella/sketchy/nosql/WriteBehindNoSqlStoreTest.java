@@ -0,0 +1,255 @@
+package com.caseystella.sketchy.nosql;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.caseystella.sketchy.nosql.exception.UnableToPutException;
+import com.google.common.collect.Iterables;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+public class WriteBehindNoSqlStoreTest extends AbstractNoSqlStoreTest<WriteBehindNoSqlStore> {
+  static WriteBehindNoSqlStore store = null;
+
+  @Override
+  public void clearStore(WriteBehindNoSqlStore store) throws Exception {
+    store.flush();
+    ((InMemoryNoSqlStore) store.getStore()).clear();
+  }
+
+  @Override
+  public WriteBehindNoSqlStore getStore() {
+    return store;
+  }
+
+  @BeforeAll
+  public static void beforeAll() throws Exception {
+    store = new WriteBehindNoSqlStore(new InMemoryNoSqlStore(), 16, 10, 64);
+  }
+
+  /**
+   * Counts the batches written to it, and can hold them back until it is let go.
+   */
+  private static class CountingStore extends InMemoryNoSqlStore {
+    private final AtomicInteger batches = new AtomicInteger();
+    private final CountDownLatch release;
+
+    CountingStore(boolean blocked) {
+      release = new CountDownLatch(blocked ? 1 : 0);
+    }
+
+    @Override
+    public synchronized void put(Batch batch) throws UnableToPutException {
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        throw new UnableToPutException(e);
+      }
+      batches.incrementAndGet();
+      super.put(batch);
+    }
+  }
+
+  private static Key key(long bin) {
+    return new Key.Builder().withColumnName("col").withStreamId("stream").withDataType((short) 0)
+        .withTimestampBin(bin).build();
+  }
+
+  private static Value value(String host, long computeTimestamp) {
+    return new Value.Builder().withHostId(host).withComputeTimestamp(computeTimestamp)
+        .withData(new byte[] {(byte) computeTimestamp}).build();
+  }
+
+  private static void awaitBatches(CountingStore counting, int n) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 10_000;
+    while (counting.batches.get() < n && System.currentTimeMillis() < deadline) {
+      Thread.sleep(5);
+    }
+  }
+
+  @Test
+  public void testCoalesces() throws Exception {
+    CountingStore counting = new CountingStore(false);
+    try (WriteBehindNoSqlStore buffer = new WriteBehindNoSqlStore(counting, 100, 60_000, 100)) {
+      buffer.put(key(0), value("host_0", 1));
+      buffer.put(key(0), value("host_0", 3));
+      buffer.put(key(0), value("host_0", 2));
+      buffer.put(key(0), value("host_1", 1));
+      assertEquals(2, buffer.getNumPending());
+      buffer.flush();
+      assertEquals(1, counting.batches.get());
+      Iterable<Value> values = counting.get(key(0));
+      assertEquals(2, Iterables.size(values));
+      assertTrue(Iterables.contains(values, value("host_0", 3)));
+      assertTrue(Iterables.contains(values, value("host_1", 1)));
+    }
+  }
+
+  @Test
+  public void testFlushesBySize() throws Exception {
+    CountingStore counting = new CountingStore(false);
+    try (WriteBehindNoSqlStore buffer = new WriteBehindNoSqlStore(counting, 10, 60_000, 100)) {
+      for (int i = 0; i < 10; ++i) {
+        buffer.put(key(i), value("host", i));
+      }
+      awaitBatches(counting, 1);
+      assertEquals(1, counting.batches.get());
+      assertEquals(0, buffer.getNumPending());
+    }
+  }
+
+  @Test
+  public void testFlushesByTime() throws Exception {
+    CountingStore counting = new CountingStore(false);
+    try (WriteBehindNoSqlStore buffer = new WriteBehindNoSqlStore(counting, 100, 20, 100)) {
+      buffer.put(key(0), value("host", 0));
+      awaitBatches(counting, 1);
+      assertEquals(1, counting.batches.get());
+    }
+  }
+
+  @Test
+  public void testBackPressure() throws Exception {
+    CountingStore counting = new CountingStore(true);
+    try (WriteBehindNoSqlStore buffer = new WriteBehindNoSqlStore(counting, 2, 60_000, 2)) {
+      // taken by the background thread, which is then held up writing them
+      buffer.put(key(0), value("host", 0));
+      buffer.put(key(1), value("host", 1));
+      long deadline = System.currentTimeMillis() + 10_000;
+      while (buffer.getNumPending() > 0 && System.currentTimeMillis() < deadline) {
+        Thread.sleep(5);
+      }
+      buffer.put(key(2), value("host", 2));
+      buffer.put(key(3), value("host", 3));
+      // coalescing into a full buffer does not block
+      buffer.put(key(3), value("host", 4));
+
+      CountDownLatch done = new CountDownLatch(1);
+      Thread writer = new Thread(() -> {
+        try {
+          buffer.put(key(4), value("host", 5));
+        } catch (UnableToPutException e) {
+          throw new IllegalStateException(e);
+        }
+        done.countDown();
+      });
+      writer.start();
+      assertFalse(done.await(100, TimeUnit.MILLISECONDS));
+      counting.release.countDown();
+      assertTrue(done.await(10, TimeUnit.SECONDS));
+    }
+    // closing writes what was left
+    for (int i = 0; i < 5; ++i) {
+      assertEquals(1, Iterables.size(counting.get(key(i))));
+    }
+    assertEquals(value("host", 4), counting.get(key(3)).iterator().next());
+  }
+
+  /**
+   * Fails to write while failing is set, throwing whatever it is given.
+   */
+  private static class FailingStore extends InMemoryNoSqlStore {
+    private volatile Throwable failing;
+    private final AtomicInteger attempts = new AtomicInteger();
+
+    FailingStore(Throwable failing) {
+      this.failing = failing;
+    }
+
+    @Override
+    public synchronized void put(Batch batch) throws UnableToPutException {
+      attempts.incrementAndGet();
+      Throwable t = failing;
+      if (t instanceof UnableToPutException) {
+        throw (UnableToPutException) t;
+      } else if (t instanceof Error) {
+        throw (Error) t;
+      }
+      super.put(batch);
+    }
+  }
+
+  @Test
+  public void testFailureIsReported() throws Exception {
+    FailingStore failing = new FailingStore(new UnableToPutException("nope"));
+    try (WriteBehindNoSqlStore buffer = new WriteBehindNoSqlStore(failing, 100, 60_000, 100)) {
+      buffer.put(key(0), value("host", 0));
+      assertThrows(UnableToPutException.class, buffer::flush);
+      // the batch is kept to be retried
+      assertEquals(1, buffer.getNumPending());
+      buffer.put(key(0), value("host", 1));
+      assertEquals(1, buffer.getNumPending());
+      failing.failing = null;
+      buffer.flush();
+      assertEquals(0, buffer.getNumPending());
+      assertEquals(value("host", 1), failing.get(key(0)).iterator().next());
+    }
+  }
+
+  @Test
+  public void testBackgroundFailureIsRetried() throws Exception {
+    // an Error as well, which must not take the background thread down with it
+    for (Throwable t : new Throwable[] {new UnableToPutException("nope"),
+        new LinkageError("nope")}) {
+      FailingStore failing = new FailingStore(t);
+      try (WriteBehindNoSqlStore buffer = new WriteBehindNoSqlStore(failing, 1, 10, 1)) {
+        buffer.put(key(0), value("host", 0));
+        // a retry after the first failure shows the background thread survived it
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (failing.attempts.get() < 2 && System.currentTimeMillis() < deadline) {
+          Thread.sleep(5);
+        }
+        assertTrue(failing.attempts.get() >= 2);
+        assertSame(t, buffer.getFailure());
+        // the failure is not thrown from puts, which still buffer their values
+        buffer.put(key(0), value("host", 1));
+        assertEquals(1, buffer.getNumPending());
+        failing.failing = null;
+        deadline = System.currentTimeMillis() + 10_000;
+        while (!failing.get(key(0)).iterator().hasNext() && System.currentTimeMillis() < deadline) {
+          Thread.sleep(5);
+        }
+        assertEquals(value("host", 1), failing.get(key(0)).iterator().next());
+        // and the background thread is still writing
+        buffer.put(key(1), value("host", 1));
+        deadline = System.currentTimeMillis() + 10_000;
+        while (!failing.get(key(1)).iterator().hasNext() && System.currentTimeMillis() < deadline) {
+          Thread.sleep(5);
+        }
+        assertEquals(1, Iterables.size(failing.get(key(1))));
+      }
+    }
+  }
+
+  @Test
+  public void testFailedClose() throws Exception {
+    FailingStore failing = new FailingStore(new UnableToPutException("nope"));
+    WriteBehindNoSqlStore buffer = new WriteBehindNoSqlStore(failing, 100, 60_000, 100);
+    buffer.put(key(0), value("host", 0));
+    assertThrows(IOException.class, buffer::close);
+    // the value is kept, and closing again retries it
+    assertEquals(1, buffer.getNumPending());
+    assertThrows(UnableToPutException.class, () -> buffer.put(key(1), value("host", 1)));
+    failing.failing = null;
+    buffer.close();
+    assertEquals(0, buffer.getNumPending());
+    assertNull(buffer.getFailure());
+    assertEquals(value("host", 0), failing.get(key(0)).iterator().next());
+  }
+
+  @Test
+  public void testInvalidSizes() {
+    assertThrows(IllegalArgumentException.class,
+        () -> new WriteBehindNoSqlStore(new InMemoryNoSqlStore(), 10, 100, 5));
+    assertThrows(IllegalArgumentException.class,
+        () -> new WriteBehindNoSqlStore(new InMemoryNoSqlStore(), 0, 100, 5));
+  }
+}
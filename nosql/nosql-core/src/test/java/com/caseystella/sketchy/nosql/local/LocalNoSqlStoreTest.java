@@ -0,0 +1,152 @@
+package com.caseystella.sketchy.nosql.local;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.caseystella.sketchy.nosql.AbstractNoSqlStoreTest;
+import com.caseystella.sketchy.nosql.Key;
+import com.caseystella.sketchy.nosql.NoSqlStoreConfig;
+import com.caseystella.sketchy.nosql.Value;
+import com.caseystella.sketchy.nosql.exception.StoreInitializationException;
+import com.caseystella.sketchy.nosql.exception.UnableToPutException;
+import com.google.common.collect.Iterables;
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class LocalNoSqlStoreTest extends AbstractNoSqlStoreTest<LocalNoSqlStore> {
+  @TempDir
+  static Path storeDir;
+  static LocalNoSqlStore store = null;
+
+  @Override
+  public void clearStore(LocalNoSqlStore store) throws Exception {
+    store.clear();
+  }
+
+  @Override
+  public LocalNoSqlStore getStore() {
+    return store;
+  }
+
+  @BeforeAll
+  public static void beforeAll() throws Exception {
+    store = new LocalNoSqlStore(storeDir.toFile(), 1024 * 1024);
+  }
+
+  private static Key key(long bin) {
+    return new Key.Builder().withColumnName("col").withStreamId("stream").withDataType((short) 0)
+        .withTimestampBin(bin).build();
+  }
+
+  private static Value value(String host, long computeTimestamp, int data) {
+    return new Value.Builder().withHostId(host).withComputeTimestamp(computeTimestamp)
+        .withData(new byte[] {(byte) data}).build();
+  }
+
+  @Test
+  public void testReopen(@TempDir Path tempDir) throws Exception {
+    File dir = tempDir.toFile();
+    LocalNoSqlStore local = new LocalNoSqlStore(dir, 1024);
+    for (int i = 0; i < 100; ++i) {
+      local.put(key(i), value("host", i, i));
+    }
+    local.put(key(0), value("host", 0, 42));
+    local.close();
+
+    NoSqlStoreConfig config = new NoSqlStoreConfig();
+    Map<String, Object> c = new HashMap<>();
+    c.put(LocalNoSqlStore.DIRECTORY_CONFIG, dir.getAbsolutePath());
+    c.put(LocalNoSqlStore.SEGMENT_SIZE_CONFIG, "1024");
+    config.setConfig(c);
+    LocalNoSqlStore reopened = new LocalNoSqlStore();
+    reopened.configure(config);
+    assertTrue(reopened.getNumSegments() > 1);
+    for (int i = 1; i < 100; ++i) {
+      assertEquals(Collections.singletonList(value("host", i, i)), reopened.get(key(i)));
+    }
+    // the overwrite survives too
+    assertEquals(Collections.singletonList(value("host", 0, 42)), reopened.get(key(0)));
+    // and it can still be written to
+    reopened.put(key(100), value("host", 100, 100));
+    assertEquals(1, Iterables.size(reopened.get(key(100))));
+    reopened.close();
+  }
+
+  @Test
+  public void testTornRecord(@TempDir Path tempDir) throws Exception {
+    File dir = tempDir.toFile();
+    try (LocalNoSqlStore local = new LocalNoSqlStore(dir, 4096)) {
+      local.put(key(0), value("host", 0, 1));
+      local.put(key(1), value("host", 1, 2));
+    }
+    // as if only part of the second record had reached the disk
+    int end = Segment.recordSize(key(0), value("host", 0, 1))
+        + Segment.recordSize(key(1), value("host", 1, 2));
+    try (RandomAccessFile file = new RandomAccessFile(new File(dir, Segment.fileName(0)), "rw")) {
+      file.seek(end - 1);
+      file.write(0);
+    }
+    try (LocalNoSqlStore reopened = new LocalNoSqlStore(dir, 4096)) {
+      assertEquals(Collections.singletonList(value("host", 0, 1)), reopened.get(key(0)));
+      assertFalse(reopened.get(key(1)).iterator().hasNext());
+      // the log carries on from the end of the first record
+      reopened.put(key(2), value("host", 2, 3));
+      assertEquals(Collections.singletonList(value("host", 2, 3)), reopened.get(key(2)));
+    }
+    try (LocalNoSqlStore reopened = new LocalNoSqlStore(dir, 4096)) {
+      assertEquals(1, Iterables.size(reopened.get(key(0))));
+      assertEquals(1, Iterables.size(reopened.get(key(2))));
+    }
+  }
+
+  @Test
+  public void testOverwrite(@TempDir Path tempDir) throws Exception {
+    LocalNoSqlStore local = new LocalNoSqlStore(tempDir.toFile(), 4096);
+    local.put(key(0), value("host_0", 0, 1));
+    local.put(key(0), value("host_1", 0, 2));
+    local.put(key(0), value("host_0", 0, 3));
+    local.put(key(0), value("host_0", 1, 4));
+    assertEquals(3, Iterables.size(local.get(key(0))));
+    assertTrue(Iterables.contains(local.get(key(0)), value("host_0", 0, 3)));
+    assertFalse(Iterables.contains(local.get(key(0)), value("host_0", 0, 1)));
+    assertFalse(local.get(key(1)).iterator().hasNext());
+  }
+
+  @Test
+  public void testGetData(@TempDir Path tempDir) throws Exception {
+    LocalNoSqlStore local = new LocalNoSqlStore(tempDir.toFile(), 4096);
+    local.put(key(0), value("host", 0, 7));
+    List<ByteBuffer> data = local.getData(key(0));
+    assertEquals(1, data.size());
+    assertTrue(data.get(0).isDirect());
+    assertTrue(data.get(0).isReadOnly());
+    assertEquals(1, data.get(0).remaining());
+    assertEquals(7, data.get(0).get(0));
+  }
+
+  @Test
+  public void testRecordTooBig(@TempDir Path tempDir) throws Exception {
+    LocalNoSqlStore local = new LocalNoSqlStore(tempDir.toFile(), 64);
+    assertThrows(UnableToPutException.class, () -> local.put(key(0),
+        new Value.Builder().withHostId("host").withComputeTimestamp(0).withData(new byte[64])
+            .build()));
+  }
+
+  @Test
+  public void testMissingDirectory() {
+    NoSqlStoreConfig config = new NoSqlStoreConfig();
+    config.setConfig(new HashMap<>());
+    assertThrows(StoreInitializationException.class, () -> new LocalNoSqlStore().configure(config));
+  }
+}
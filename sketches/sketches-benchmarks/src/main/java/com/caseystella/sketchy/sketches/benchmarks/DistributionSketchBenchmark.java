@@ -0,0 +1,150 @@
+package com.caseystella.sketchy.sketches.benchmarks;
+
+import com.caseystella.sketchy.sketches.statistics.distribution.DistributionSketch;
+import com.caseystella.sketchy.sketches.statistics.distribution.DistributionSketches;
+import com.caseystella.sketchy.utilities.SerDeUtils;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Benchmarks of the distribution sketches: ingest, merge, percentile queries and Kryo round-trips,
+ * for each type of sketch and several values of k. Run them with the GC profiler to see the
+ * allocation rate alongside the timings, either through {@link #main(String[])} or with
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar DistributionSketchBenchmark -prof gc
+ * </pre>
+ *
+ * The percentile queries are in {@link Quantiles}, which leaves out MOMENTS as it has no quantiles
+ * to query.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DistributionSketchBenchmark {
+  private static final int NUM_VALUES = 1 << 16;
+  private static final int MASK = NUM_VALUES - 1;
+  private static final int BATCH = 1024;
+  private static final int NUM_BATCHES = NUM_VALUES / BATCH;
+  private static final double[] DASHBOARD = {50, 75, 95, 99};
+
+  @Param({"DOUBLES", "DOUBLES_COMPENSATED", "LONG", "FLOAT", "FLOAT_COMPENSATED", "MOMENTS"})
+  public DistributionSketches type;
+
+  @Param({"64", "128", "512"})
+  public int k;
+
+  private double[] values;
+  private DistributionSketch<Number> left;
+  private DistributionSketch<Number> right;
+  private DistributionSketch<Number> ingest;
+  private int index;
+
+  private static double[] randomValues() {
+    Random random = new Random(0);
+    double[] ret = new double[NUM_VALUES];
+    for (int i = 0; i < NUM_VALUES; ++i) {
+      // log-normal, much like latencies, and positive so the sums of logs are defined
+      ret[i] = Math.exp(random.nextGaussian() + 3);
+    }
+    return ret;
+  }
+
+  @Setup(Level.Trial)
+  public void setup() {
+    values = randomValues();
+    left = type.create(k, null);
+    right = type.create(k, null);
+    left.addValues(values, 0, NUM_VALUES / 2);
+    right.addValues(values, NUM_VALUES / 2, NUM_VALUES / 2);
+  }
+
+  @Setup(Level.Iteration)
+  public void resetIngest() {
+    ingest = type.create(k, null);
+  }
+
+  @Benchmark
+  public void addDouble() {
+    ingest.addDouble(values[index++ & MASK]);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH)
+  public void addValues() {
+    ingest.addValues(values, (index++ % NUM_BATCHES) * BATCH, BATCH);
+  }
+
+  @Benchmark
+  public DistributionSketch<Number> merge() {
+    return left.merge(right);
+  }
+
+  @Benchmark
+  public Object kryoRoundTrip() {
+    return SerDeUtils.fromBytes(SerDeUtils.toBytes(left), Object.class);
+  }
+
+  /**
+   * Percentile queries, for the types of sketch which have quantiles.
+   */
+  @State(Scope.Thread)
+  public static class Quantiles {
+    @Param({"DOUBLES", "DOUBLES_COMPENSATED", "LONG", "FLOAT", "FLOAT_COMPENSATED"})
+    public DistributionSketches type;
+
+    @Param({"64", "128", "512"})
+    public int k;
+
+    // Percentiles to query one at a time
+    private double[] percentiles;
+    private DistributionSketch<Number> sketch;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setup() {
+      Random random = new Random(1);
+      percentiles = new double[NUM_VALUES];
+      for (int i = 0; i < NUM_VALUES; ++i) {
+        percentiles[i] = 100 * random.nextDouble();
+      }
+      sketch = type.create(k, null);
+      sketch.addValues(randomValues(), 0, NUM_VALUES / 2);
+    }
+
+    @Benchmark
+    public double getPercentile() {
+      return sketch.getPercentile(percentiles[index++ & MASK]);
+    }
+
+    @Benchmark
+    public double[] getPercentiles() {
+      return sketch.getPercentiles(DASHBOARD);
+    }
+  }
+
+  public static void main(String... args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(DistributionSketchBenchmark.class.getSimpleName())
+        .addProfiler(GCProfiler.class).build()).run();
+  }
+}
@@ -0,0 +1,53 @@
+package com.caseystella.sketchy.sketches.statistics.cardinality;
+
+import com.esotericsoftware.kryo.KryoSerializable;
+
+/**
+ * A mergeable, constant memory sketch of the number of distinct values in a stream.
+ */
+public interface CardinalitySketch extends KryoSerializable {
+  CardinalitySketches getType();
+
+  /**
+   * @return The log base 2 of the number of buckets in the sketch, which determines its accuracy.
+   */
+  int getLgK();
+
+  /**
+   * Add a value. Integral numbers are added as longs and other numbers as doubles, so that e.g. 1
+   * and 1L count as the same value; strings and byte arrays are added as they are and anything
+   * else as its string form.
+   */
+  void addValue(Object value);
+
+  void addLong(long value);
+
+  void addDouble(double value);
+
+  void addString(String value);
+
+  void addBytes(byte[] value);
+
+  boolean isEmpty();
+
+  /**
+   * @return The estimated number of distinct values.
+   */
+  double getEstimate();
+
+  /**
+   * @param numStdDev The number of standard deviations, between 1 and 3.
+   */
+  double getLowerBound(int numStdDev);
+
+  /**
+   * @param numStdDev The number of standard deviations, between 1 and 3.
+   */
+  double getUpperBound(int numStdDev);
+
+  /**
+   * Merge with another sketch of the same type, returning a new sketch. The result has the smaller
+   * of the two lgKs.
+   */
+  CardinalitySketch merge(CardinalitySketch sketch);
+}
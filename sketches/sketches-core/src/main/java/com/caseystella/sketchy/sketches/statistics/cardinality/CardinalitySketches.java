@@ -0,0 +1,49 @@
+package com.caseystella.sketchy.sketches.statistics.cardinality;
+
+import com.caseystella.sketchy.sketches.statistics.cardinality.sketchimpl.CpcCardinalitySketch;
+import com.caseystella.sketchy.sketches.statistics.cardinality.sketchimpl.HllCardinalitySketch;
+import java.util.function.Function;
+
+/**
+ * The available cardinality sketches.
+ * <ul>
+ * <li>HLL - a HyperLogLog sketch, with 4 bit buckets.</li>
+ * <li>CPC - a Compressed Probabilistic Counting sketch, which is smaller than an HLL sketch of the
+ * same accuracy once serialized but larger on the heap.</li>
+ * </ul>
+ */
+public enum CardinalitySketches {
+  HLL((byte) 1, lgK -> new HllCardinalitySketch(lgK)), CPC((byte) 2,
+      lgK -> new CpcCardinalitySketch(lgK));
+
+  public static final int DEFAULT_LG_K = 12;
+  // A stable identifier for the type, used in binary formats in place of the class name
+  byte id;
+  Function<Integer, CardinalitySketch> creator;
+
+  CardinalitySketches(byte id, Function<Integer, CardinalitySketch> creator) {
+    this.id = id;
+    this.creator = creator;
+  }
+
+  public byte getId() {
+    return id;
+  }
+
+  public static CardinalitySketches fromId(byte id) {
+    for (CardinalitySketches type : values()) {
+      if (type.id == id) {
+        return type;
+      }
+    }
+    throw new IllegalArgumentException("Unknown cardinality sketch type: " + id);
+  }
+
+  public CardinalitySketch create() {
+    return create(DEFAULT_LG_K);
+  }
+
+  public CardinalitySketch create(int lgK) {
+    return creator.apply(lgK);
+  }
+}
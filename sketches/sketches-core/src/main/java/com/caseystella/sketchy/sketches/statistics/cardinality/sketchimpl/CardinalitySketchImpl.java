@@ -0,0 +1,133 @@
+package com.caseystella.sketchy.sketches.statistics.cardinality.sketchimpl;
+
+import com.caseystella.sketchy.sketches.statistics.cardinality.CardinalitySketch;
+import com.caseystella.sketchy.sketches.statistics.cardinality.CardinalitySketches;
+import com.caseystella.sketchy.utilities.SerDeUtils;
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Arrays;
+import org.apache.datasketches.memory.Memory;
+
+/**
+ * The common state and serialization of the cardinality sketches, which wrap a DataSketches sketch
+ * of type S.
+ */
+public abstract class CardinalitySketchImpl<S> implements CardinalitySketch, Serializable {
+  private static final long serialVersionUID = 1L;
+  protected S sketch;
+  int lgK;
+
+  public CardinalitySketchImpl() {
+    this(CardinalitySketches.DEFAULT_LG_K);
+  }
+
+  public CardinalitySketchImpl(int lgK) {
+    this.lgK = lgK;
+    this.sketch = createSketch(lgK);
+  }
+
+  abstract protected S createSketch(int lgK);
+
+  abstract protected CardinalitySketchImpl<S> createNew(int lgK);
+
+  abstract protected byte[] toByteArray(S s);
+
+  abstract protected S heapify(Memory mem);
+
+  /**
+   * @return The union of a and b, with the given lgK.
+   */
+  abstract protected S union(S a, S b, int lgK);
+
+  @Override
+  public int getLgK() {
+    return lgK;
+  }
+
+  @Override
+  public void addValue(Object value) {
+    if (value instanceof Long || value instanceof Integer || value instanceof Short
+        || value instanceof Byte) {
+      addLong(((Number) value).longValue());
+    } else if (value instanceof Number) {
+      addDouble(((Number) value).doubleValue());
+    } else if (value instanceof String) {
+      addString((String) value);
+    } else if (value instanceof byte[]) {
+      addBytes((byte[]) value);
+    } else if (value != null) {
+      addString(value.toString());
+    }
+  }
+
+  @Override
+  public CardinalitySketch merge(CardinalitySketch other) {
+    if (other.getType() != getType()) {
+      throw new IllegalArgumentException(
+          "Unable to merge a " + getType() + " sketch with a " + other.getType() + " sketch.");
+    }
+    @SuppressWarnings("unchecked")
+    CardinalitySketchImpl<S> b = (CardinalitySketchImpl<S>) other;
+    int combinedLgK = Math.min(lgK, b.lgK);
+    CardinalitySketchImpl<S> combined = createNew(combinedLgK);
+    combined.sketch = union(sketch, b.sketch, combinedLgK);
+    return combined;
+  }
+
+  @Override
+  public void write(Kryo kryo, Output output) {
+    output.writeInt(lgK);
+    byte[] bytes = toByteArray(sketch);
+    output.writeInt(bytes.length);
+    output.writeBytes(bytes);
+  }
+
+  @Override
+  public void read(Kryo kryo, Input input) {
+    lgK = input.readInt();
+    int len = input.readInt();
+    sketch = heapify(Memory.wrap(input.readBytes(len)));
+  }
+
+  private void writeObject(java.io.ObjectOutputStream output) throws IOException {
+    byte[] ser = SerDeUtils.toBytes(this);
+    output.writeInt(ser.length);
+    output.write(ser);
+  }
+
+  private void readObject(java.io.ObjectInputStream input)
+      throws IOException, ClassNotFoundException {
+    int len = input.readInt();
+    byte[] ser = new byte[len];
+    input.readFully(ser);
+    CardinalitySketchImpl<S> s = SerDeUtils.fromBytes(ser, this.getClass());
+    this.lgK = s.lgK;
+    this.sketch = s.sketch;
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + "{" + "lgK=" + lgK + ", estimate=" + getEstimate() + '}';
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    @SuppressWarnings("unchecked")
+    CardinalitySketchImpl<S> that = (CardinalitySketchImpl<S>) o;
+    return lgK == that.lgK && Arrays.equals(toByteArray(sketch), toByteArray(that.sketch));
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * lgK + Arrays.hashCode(toByteArray(sketch));
+  }
+}
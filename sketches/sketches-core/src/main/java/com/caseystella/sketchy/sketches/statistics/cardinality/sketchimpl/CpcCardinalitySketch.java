@@ -0,0 +1,91 @@
+package com.caseystella.sketchy.sketches.statistics.cardinality.sketchimpl;
+
+import com.caseystella.sketchy.sketches.statistics.cardinality.CardinalitySketches;
+import org.apache.datasketches.cpc.CpcSketch;
+import org.apache.datasketches.cpc.CpcUnion;
+import org.apache.datasketches.memory.Memory;
+
+public class CpcCardinalitySketch extends CardinalitySketchImpl<CpcSketch> {
+  private static final long serialVersionUID = 1L;
+
+  public CpcCardinalitySketch() {
+    super();
+  }
+
+  public CpcCardinalitySketch(int lgK) {
+    super(lgK);
+  }
+
+  @Override
+  public CardinalitySketches getType() {
+    return CardinalitySketches.CPC;
+  }
+
+  @Override
+  protected CpcSketch createSketch(int lgK) {
+    return new CpcSketch(lgK);
+  }
+
+  @Override
+  protected CardinalitySketchImpl<CpcSketch> createNew(int lgK) {
+    return new CpcCardinalitySketch(lgK);
+  }
+
+  @Override
+  protected byte[] toByteArray(CpcSketch s) {
+    return s.toByteArray();
+  }
+
+  @Override
+  protected CpcSketch heapify(Memory mem) {
+    return CpcSketch.heapify(mem);
+  }
+
+  @Override
+  protected CpcSketch union(CpcSketch a, CpcSketch b, int lgK) {
+    CpcUnion union = new CpcUnion(lgK);
+    union.update(a);
+    union.update(b);
+    return union.getResult();
+  }
+
+  @Override
+  public void addLong(long value) {
+    sketch.update(value);
+  }
+
+  @Override
+  public void addDouble(double value) {
+    sketch.update(value);
+  }
+
+  @Override
+  public void addString(String value) {
+    sketch.update(value);
+  }
+
+  @Override
+  public void addBytes(byte[] value) {
+    sketch.update(value);
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return sketch.isEmpty();
+  }
+
+  @Override
+  public double getEstimate() {
+    return sketch.getEstimate();
+  }
+
+  @Override
+  public double getLowerBound(int numStdDev) {
+    return sketch.getLowerBound(numStdDev);
+  }
+
+  @Override
+  public double getUpperBound(int numStdDev) {
+    return sketch.getUpperBound(numStdDev);
+  }
+}
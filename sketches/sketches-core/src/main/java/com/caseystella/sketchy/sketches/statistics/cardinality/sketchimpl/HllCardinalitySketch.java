@@ -0,0 +1,93 @@
+package com.caseystella.sketchy.sketches.statistics.cardinality.sketchimpl;
+
+import com.caseystella.sketchy.sketches.statistics.cardinality.CardinalitySketches;
+import org.apache.datasketches.hll.HllSketch;
+import org.apache.datasketches.hll.TgtHllType;
+import org.apache.datasketches.hll.Union;
+import org.apache.datasketches.memory.Memory;
+
+public class HllCardinalitySketch extends CardinalitySketchImpl<HllSketch> {
+  private static final long serialVersionUID = 1L;
+  public static final TgtHllType TARGET_TYPE = TgtHllType.HLL_4;
+
+  public HllCardinalitySketch() {
+    super();
+  }
+
+  public HllCardinalitySketch(int lgK) {
+    super(lgK);
+  }
+
+  @Override
+  public CardinalitySketches getType() {
+    return CardinalitySketches.HLL;
+  }
+
+  @Override
+  protected HllSketch createSketch(int lgK) {
+    return new HllSketch(lgK, TARGET_TYPE);
+  }
+
+  @Override
+  protected CardinalitySketchImpl<HllSketch> createNew(int lgK) {
+    return new HllCardinalitySketch(lgK);
+  }
+
+  @Override
+  protected byte[] toByteArray(HllSketch s) {
+    return s.toCompactByteArray();
+  }
+
+  @Override
+  protected HllSketch heapify(Memory mem) {
+    return HllSketch.heapify(mem);
+  }
+
+  @Override
+  protected HllSketch union(HllSketch a, HllSketch b, int lgK) {
+    Union union = new Union(lgK);
+    union.update(a);
+    union.update(b);
+    return union.getResult(TARGET_TYPE);
+  }
+
+  @Override
+  public void addLong(long value) {
+    sketch.update(value);
+  }
+
+  @Override
+  public void addDouble(double value) {
+    sketch.update(value);
+  }
+
+  @Override
+  public void addString(String value) {
+    sketch.update(value);
+  }
+
+  @Override
+  public void addBytes(byte[] value) {
+    sketch.update(value);
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return sketch.isEmpty();
+  }
+
+  @Override
+  public double getEstimate() {
+    return sketch.getEstimate();
+  }
+
+  @Override
+  public double getLowerBound(int numStdDev) {
+    return sketch.getLowerBound(numStdDev);
+  }
+
+  @Override
+  public double getUpperBound(int numStdDev) {
+    return sketch.getUpperBound(numStdDev);
+  }
+}
@@ -0,0 +1,420 @@
+package com.caseystella.sketchy.sketches.statistics.distribution;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import java.nio.DoubleBuffer;
+import java.nio.LongBuffer;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A thread-safe distribution sketch. Writes are spread over a fixed number of stripes, one per
+ * available processor rounded up to a power of two, by hashing the writing thread onto one. Each
+ * stripe is an ordinary {@link DistributionSketch} guarded by its own lock, so writers only contend
+ * when they hash onto the same stripe. As the stripes are bounded and not tied to a thread, nothing
+ * is left behind when a writing thread dies. Reads merge the stripes via
+ * {@link DistributionSketch#merge(DistributionSketch)} and the merged result is cached until one of
+ * the stripes is written to again. Quantile queries of the cached result are made under its lock,
+ * since querying a KLL sketch sorts part of it in place, so concurrent readers of the quantiles are
+ * serialized while readers of the moments are not.
+ */
+public class ConcurrentDistributionSketch<T extends Number> implements DistributionSketch<T> {
+
+  private static final class Stripe<T extends Number> {
+    final DistributionSketch<T> sketch;
+    // Only ever incremented while holding the stripe's lock.
+    volatile long version = 0;
+
+    Stripe(DistributionSketch<T> sketch) {
+      this.sketch = sketch;
+    }
+  }
+
+  private static final class Merged<T extends Number> {
+    final DistributionSketch<T> sketch;
+    final long[] versions;
+
+    Merged(DistributionSketch<T> sketch, long[] versions) {
+      this.sketch = sketch;
+      this.versions = versions;
+    }
+  }
+
+  private DistributionSketches type;
+  private int k;
+  // Created on the first write to them, so that a sketch written by few threads stays small.
+  private AtomicReferenceArray<Stripe<T>> stripes = newStripes();
+  private volatile Merged<T> merged;
+
+  private ConcurrentDistributionSketch() {
+    // for kryo
+  }
+
+  public ConcurrentDistributionSketch(DistributionSketches type, int k) {
+    this.type = type;
+    this.k = k;
+  }
+
+  private DistributionSketch<T> createSketch() {
+    return type.create(k, null);
+  }
+
+  private static <T extends Number> AtomicReferenceArray<Stripe<T>> newStripes() {
+    int processors = Runtime.getRuntime().availableProcessors();
+    return new AtomicReferenceArray<>(Integer.highestOneBit(Math.max(1, processors * 2 - 1)));
+  }
+
+  /**
+   * @return The stripe of the calling thread. Thread ids are handed out in sequence, so the threads
+   *         of a pool each get a stripe of their own until there are more of them than stripes.
+   */
+  private Stripe<T> localStripe() {
+    int i = (int) Thread.currentThread().getId() & (stripes.length() - 1);
+    Stripe<T> stripe = stripes.get(i);
+    if (stripe == null) {
+      stripes.compareAndSet(i, null, new Stripe<>(createSketch()));
+      stripe = stripes.get(i);
+    }
+    return stripe;
+  }
+
+  private static long version(Stripe<?> stripe) {
+    // a stripe not created yet is as good as one which has never been written to
+    return stripe == null ? 0 : stripe.version;
+  }
+
+  /**
+   * @return The number of stripes which have been written to, which is never more than the number
+   *         of processors rounded up to a power of two however many threads have written.
+   */
+  int getNumStripes() {
+    int ret = 0;
+    for (int i = 0; i < stripes.length(); ++i) {
+      if (stripes.get(i) != null) {
+        ++ret;
+      }
+    }
+    return ret;
+  }
+
+  /**
+   * Merge the stripes into a new sketch. The stripes are each locked only for the duration of their
+   * own merge, so writers are never blocked on the whole snapshot.
+   *
+   * @return A sketch which is not shared with this one.
+   */
+  public DistributionSketch<T> snapshot() {
+    return mergeStripes().sketch;
+  }
+
+  private Merged<T> mergeStripes() {
+    long[] versions = new long[stripes.length()];
+    DistributionSketch<T> ret = null;
+    for (int i = 0; i < versions.length; ++i) {
+      Stripe<T> stripe = stripes.get(i);
+      if (stripe == null) {
+        continue;
+      }
+      synchronized (stripe) {
+        versions[i] = stripe.version;
+        if (stripe.sketch.getCount() == 0) {
+          continue;
+        }
+        ret = ret == null ? stripe.sketch.merge(createSketch()) : ret.merge(stripe.sketch);
+      }
+    }
+    return new Merged<>(ret == null ? createSketch() : ret, versions);
+  }
+
+  /**
+   * @return The stripes merged, which is shared between readers. The moments can be read from it
+   *         freely, but anything reading the quantile sketch must hold its lock, as a KLL sketch
+   *         sorts its first level in place when it is queried.
+   */
+  private DistributionSketch<T> merged() {
+    Merged<T> m = merged;
+    if (m == null || isStale(m)) {
+      m = mergeStripes();
+      merged = m;
+    }
+    return m.sketch;
+  }
+
+  private boolean isStale(Merged<T> m) {
+    for (int i = 0; i < m.versions.length; ++i) {
+      if (version(stripes.get(i)) != m.versions[i]) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public DistributionSketches getType() {
+    return type;
+  }
+
+  @Override
+  public int getK() {
+    return k;
+  }
+
+  @Override
+  public void addValue(T value) {
+    Stripe<T> stripe = localStripe();
+    synchronized (stripe) {
+      stripe.sketch.addValue(value);
+      stripe.version++;
+    }
+  }
+
+  @Override
+  public void addDouble(double value) {
+    Stripe<T> stripe = localStripe();
+    synchronized (stripe) {
+      stripe.sketch.addDouble(value);
+      stripe.version++;
+    }
+  }
+
+  @Override
+  public void addLong(long value) {
+    Stripe<T> stripe = localStripe();
+    synchronized (stripe) {
+      stripe.sketch.addLong(value);
+      stripe.version++;
+    }
+  }
+
+  @Override
+  public void addFloat(float value) {
+    Stripe<T> stripe = localStripe();
+    synchronized (stripe) {
+      stripe.sketch.addFloat(value);
+      stripe.version++;
+    }
+  }
+
+  @Override
+  public void addValues(double[] values, int off, int len) {
+    Stripe<T> stripe = localStripe();
+    synchronized (stripe) {
+      stripe.sketch.addValues(values, off, len);
+      stripe.version++;
+    }
+  }
+
+  @Override
+  public void addValues(long[] values, int off, int len) {
+    Stripe<T> stripe = localStripe();
+    synchronized (stripe) {
+      stripe.sketch.addValues(values, off, len);
+      stripe.version++;
+    }
+  }
+
+  @Override
+  public void addValues(DoubleBuffer values) {
+    Stripe<T> stripe = localStripe();
+    synchronized (stripe) {
+      stripe.sketch.addValues(values);
+      stripe.version++;
+    }
+  }
+
+  @Override
+  public void addValues(LongBuffer values) {
+    Stripe<T> stripe = localStripe();
+    synchronized (stripe) {
+      stripe.sketch.addValues(values);
+      stripe.version++;
+    }
+  }
+
+  @Override
+  public long getCount() {
+    return merged().getCount();
+  }
+
+  @Override
+  public Optional<T> getMin() {
+    return merged().getMin();
+  }
+
+  @Override
+  public Optional<T> getMax() {
+    return merged().getMax();
+  }
+
+  @Override
+  public double getMean() {
+    return merged().getMean();
+  }
+
+  @Override
+  public T getSum() {
+    return merged().getSum();
+  }
+
+  @Override
+  public double getVariance() {
+    return merged().getVariance();
+  }
+
+  @Override
+  public double getStandardDeviation() {
+    return merged().getStandardDeviation();
+  }
+
+  @Override
+  public double getGeometricMean() {
+    return merged().getGeometricMean();
+  }
+
+  @Override
+  public double getPopulationVariance() {
+    return merged().getPopulationVariance();
+  }
+
+  @Override
+  public double getQuadraticMean() {
+    return merged().getQuadraticMean();
+  }
+
+  @Override
+  public double getSumLogs() {
+    return merged().getSumLogs();
+  }
+
+  @Override
+  public T getSumSquares() {
+    return merged().getSumSquares();
+  }
+
+  @Override
+  public double getKurtosis() {
+    return merged().getKurtosis();
+  }
+
+  @Override
+  public double getSkewness() {
+    return merged().getSkewness();
+  }
+
+  @Override
+  public double getPercentile(double p) {
+    DistributionSketch<T> m = merged();
+    synchronized (m) {
+      return m.getPercentile(p);
+    }
+  }
+
+  @Override
+  public double[] getPercentiles(double[] ps) {
+    DistributionSketch<T> m = merged();
+    synchronized (m) {
+      return m.getPercentiles(ps);
+    }
+  }
+
+  @Override
+  public double[] getCDF(double[] splitPoints) {
+    DistributionSketch<T> m = merged();
+    synchronized (m) {
+      return m.getCDF(splitPoints);
+    }
+  }
+
+  @Override
+  public double[] getPMF(double[] splitPoints) {
+    DistributionSketch<T> m = merged();
+    synchronized (m) {
+      return m.getPMF(splitPoints);
+    }
+  }
+
+  @Override
+  public double getRank(double value) {
+    DistributionSketch<T> m = merged();
+    synchronized (m) {
+      return m.getRank(value);
+    }
+  }
+
+  @Override
+  public double getNormalizedRankError() {
+    return merged().getNormalizedRankError();
+  }
+
+  @Override
+  public int getSerializedSizeBytes() {
+    DistributionSketch<T> m = merged();
+    synchronized (m) {
+      return m.getSerializedSizeBytes();
+    }
+  }
+
+  /**
+   * Merge with another sketch. The result is a new, non-concurrent, sketch. Another concurrent
+   * sketch is merged from a snapshot of it, so that only one merged sketch is locked at a time.
+   */
+  @Override
+  public DistributionSketch<T> merge(DistributionSketch<T> sketch) {
+    DistributionSketch<T> other = sketch instanceof ConcurrentDistributionSketch
+        ? ((ConcurrentDistributionSketch<T>) sketch).snapshot()
+        : sketch;
+    DistributionSketch<T> m = merged();
+    synchronized (m) {
+      return m.merge(other);
+    }
+  }
+
+  /**
+   * Reset each of the stripes in turn. A value written concurrently with the reset may land on
+   * either side of it.
+   */
+  @Override
+  public void reset() {
+    for (int i = 0; i < stripes.length(); ++i) {
+      Stripe<T> stripe = stripes.get(i);
+      if (stripe == null) {
+        continue;
+      }
+      synchronized (stripe) {
+        stripe.sketch.reset();
+        stripe.version++;
+      }
+    }
+    merged = null;
+  }
+
+  @Override
+  public void write(Kryo kryo, Output output) {
+    output.writeString(type.name());
+    DistributionSketch<T> m = merged();
+    synchronized (m) {
+      m.write(kryo, output);
+    }
+  }
+
+  @Override
+  public void read(Kryo kryo, Input input) {
+    type = DistributionSketches.valueOf(input.readString());
+    DistributionSketch<T> sketch = type.create(DistributionSketches.DEFAULT_K, null);
+    sketch.read(kryo, input);
+    k = sketch.getK();
+    stripes = newStripes();
+    stripes.set(0, new Stripe<>(sketch));
+    merged = null;
+  }
+
+  @Override
+  public String toString() {
+    DistributionSketch<T> m = merged();
+    synchronized (m) {
+      return "ConcurrentDistributionSketch{" + "type=" + type + ", stripes=" + stripes.length()
+          + ", merged=" + m + '}';
+    }
+  }
+}
@@ -2,13 +2,52 @@ package com.caseystella.sketchy.sketches.statistics.distribution;
 
 import com.esotericsoftware.kryo.KryoSerializable;
 
+import java.nio.DoubleBuffer;
+import java.nio.LongBuffer;
 import java.util.Optional;
 
 public interface DistributionSketch<T extends Number> extends KryoSerializable {
+  DistributionSketches getType();
+
   int getK();
 
   void addValue(T value);
 
+  /**
+   * Add a primitive double without boxing it; the value is converted to the sketch's number type.
+   */
+  void addDouble(double value);
+
+  /**
+   * Add a primitive long without boxing it; the value is converted to the sketch's number type.
+   */
+  void addLong(long value);
+
+  /**
+   * Add a primitive float without boxing it; the value is converted to the sketch's number type.
+   */
+  void addFloat(float value);
+
+  /**
+   * Add len values from an array, starting at off, in a single pass.
+   */
+  void addValues(double[] values, int off, int len);
+
+  /**
+   * Add len values from an array, starting at off, in a single pass.
+   */
+  void addValues(long[] values, int off, int len);
+
+  /**
+   * Add the remaining values in the buffer. The buffer's position is advanced to its limit.
+   */
+  void addValues(DoubleBuffer values);
+
+  /**
+   * Add the remaining values in the buffer. The buffer's position is advanced to its limit.
+   */
+  void addValues(LongBuffer values);
+
   long getCount();
 
   Optional<T> getMin();
@@ -39,5 +78,55 @@ public interface DistributionSketch<T extends Number> extends KryoSerializable {
 
   double getPercentile(double p);
 
+  /**
+   * The percentiles, each between 0 and 100, in the order given. Asking for several at once is
+   * cheaper than asking for them one at a time.
+   */
+  double[] getPercentiles(double[] ps);
+
+  /**
+   * The approximate cumulative distribution at the split points, in one pass over the sketch. The
+   * split points must be unique and increasing, and the result has one more entry than they do:
+   * the fraction of the values below each split point, followed by 1.
+   */
+  double[] getCDF(double[] splitPoints);
+
+  /**
+   * The approximate fraction of the values in each interval defined by the split points, i.e. a
+   * histogram, in one pass over the sketch. The result has one more entry than the split points.
+   */
+  double[] getPMF(double[] splitPoints);
+
+  /**
+   * The approximate fraction of the values which are below value.
+   */
+  double getRank(double value);
+
+  /**
+   * @return The normalized rank error of a single percentile query, at 99% confidence, realized by
+   *         this sketch, e.g. 0.01 for a percentile whose rank is within 1% of that asked for.
+   *         NaN if the sketch keeps no quantiles.
+   */
+  double getNormalizedRankError();
+
+  /**
+   * @return The size of the sketch in the fixed binary layout of DistributionSketchFormat.
+   */
+  int getSerializedSizeBytes();
+
+  /**
+   * Merge with another sketch into a new one. The values of the result are those of the
+   * {@link DistributionSketches#commonType(DistributionSketches, DistributionSketches) common type}
+   * of the two, which for sketches of different value types, e.g. LONG and FLOAT, are doubles.
+   * Such sketches can only be merged as sketches of a type of both, e.g. DistributionSketch of
+   * Number, so the widening is always within T.
+   */
   DistributionSketch<T> merge(DistributionSketch<T> sketch);
+
+  /**
+   * Empty the sketch so that it can be reused, e.g. for the next time bin, keeping its type and k.
+   * Where the underlying quantile sketch supports it, its storage is reused rather than
+   * reallocated.
+   */
+  void reset();
 }
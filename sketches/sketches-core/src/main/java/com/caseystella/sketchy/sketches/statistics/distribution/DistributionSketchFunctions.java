@@ -0,0 +1,162 @@
+package com.caseystella.sketchy.sketches.statistics.distribution;
+
+import com.caseystella.sketchy.utilities.ConversionUtils;
+import com.caseystella.stellar.dsl.BaseStellarFunction;
+import com.caseystella.stellar.dsl.Stellar;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stellar functions to build and query distribution sketches, so that profiles can keep constant
+ * size statistics rather than lists of the raw values.
+ */
+public class DistributionSketchFunctions {
+
+  @Stellar(name = "INIT", namespace = "STATS", description = "Creates a new distribution sketch",
+      params = {"type (optional) - The type of sketch, one of DOUBLES, LONG, FLOAT, MOMENTS, "
+          + "DOUBLES_COMPENSATED or FLOAT_COMPENSATED. Defaults to DOUBLES",
+          "k (optional) - The size of the quantile sketch, larger being more accurate. Defaults to "
+              + DistributionSketches.DEFAULT_K},
+      returns = "A distribution sketch")
+  public static class StatsInit extends BaseStellarFunction {
+    @Override
+    public Object apply(List<Object> list) {
+      DistributionSketches type = DistributionSketches.DOUBLES;
+      int k = DistributionSketches.DEFAULT_K;
+      if (list.size() >= 1 && list.get(0) != null) {
+        type = DistributionSketches.valueOf(list.get(0).toString().toUpperCase());
+      }
+      if (list.size() >= 2 && list.get(1) != null) {
+        k = ConversionUtils.convert(list.get(1), Integer.class);
+      }
+      return type.create(k, null);
+    }
+  }
+
+  @Stellar(name = "ADD", namespace = "STATS",
+      description = "Adds values to a distribution sketch, which is updated in place",
+      params = {"stats - The distribution sketch to add to, or null for a new DOUBLES sketch",
+          "value - A number or list of numbers to add. Any number of these may be given"},
+      returns = "The distribution sketch")
+  public static class StatsAdd extends BaseStellarFunction {
+    @Override
+    public Object apply(List<Object> list) {
+      if (list.size() < 1) {
+        return null;
+      }
+      DistributionSketch<?> ret = (DistributionSketch<?>) list.get(0);
+      if (ret == null) {
+        ret = DistributionSketches.DOUBLES.create(Double.class);
+      }
+      for (int i = 1; i < list.size(); ++i) {
+        Object o = list.get(i);
+        if (o instanceof Iterable) {
+          for (Object value : (Iterable<?>) o) {
+            add(ret, value);
+          }
+        } else {
+          add(ret, o);
+        }
+      }
+      return ret;
+    }
+
+    private static void add(DistributionSketch<?> sketch, Object value) {
+      if (value == null) {
+        return;
+      }
+      if (!(value instanceof Number)) {
+        throw new IllegalArgumentException(
+            "Expected a number, but " + value + " is of type " + value.getClass());
+      }
+      if (value instanceof Long || value instanceof Integer || value instanceof Short
+          || value instanceof Byte) {
+        sketch.addLong(((Number) value).longValue());
+      } else {
+        sketch.addDouble(((Number) value).doubleValue());
+      }
+    }
+  }
+
+  @Stellar(name = "MERGE", namespace = "STATS",
+      description = "Merges a list of distribution sketches",
+      params = {"stats - A list of distribution sketches of the same type"},
+      returns = "A new distribution sketch, or null if there were none to merge")
+  public static class StatsMerge extends BaseStellarFunction {
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object apply(List<Object> list) {
+      if (list.size() < 1 || list.get(0) == null) {
+        return null;
+      }
+      Object o = list.get(0);
+      if (!(o instanceof Iterable)) {
+        throw new IllegalArgumentException(
+            "Expected an Iterable, but " + o + " is of type " + o.getClass());
+      }
+      List<DistributionSketch<Number>> sketches = new ArrayList<>();
+      for (Object sketch : (Iterable<?>) o) {
+        if (sketch != null) {
+          sketches.add((DistributionSketch<Number>) sketch);
+        }
+      }
+      return sketches.isEmpty() ? null : DistributionSketches.mergeAll(sketches);
+    }
+  }
+
+  @Stellar(name = "PERCENTILE", namespace = "STATS",
+      description = "The approximate percentile of the values in a distribution sketch",
+      params = {"stats - The distribution sketch",
+          "p - A percentile between 0 and 100, or a list of them"},
+      returns = "The percentile, or a list of the percentiles if a list was given")
+  public static class StatsPercentile extends BaseStellarFunction {
+    @Override
+    public Object apply(List<Object> list) {
+      if (list.size() < 2 || list.get(0) == null || list.get(1) == null) {
+        return null;
+      }
+      DistributionSketch<?> sketch = (DistributionSketch<?>) list.get(0);
+      Object p = list.get(1);
+      if (p instanceof Iterable) {
+        List<Double> ps = new ArrayList<>();
+        for (Object o : (Iterable<?>) p) {
+          ps.add(ConversionUtils.convert(o, Double.class));
+        }
+        // all of the percentiles are answered together rather than one at a time
+        double[] percentiles = sketch.getPercentiles(ps.stream().mapToDouble(d -> d).toArray());
+        List<Double> ret = new ArrayList<>(percentiles.length);
+        for (double percentile : percentiles) {
+          ret.add(percentile);
+        }
+        return ret;
+      }
+      return sketch.getPercentile(ConversionUtils.convert(p, Double.class));
+    }
+  }
+
+  @Stellar(name = "MEAN", namespace = "STATS",
+      description = "The mean of the values in a distribution sketch",
+      params = {"stats - The distribution sketch"}, returns = "The mean")
+  public static class StatsMean extends BaseStellarFunction {
+    @Override
+    public Object apply(List<Object> list) {
+      if (list.size() < 1 || list.get(0) == null) {
+        return null;
+      }
+      return ((DistributionSketch<?>) list.get(0)).getMean();
+    }
+  }
+
+  @Stellar(name = "COUNT", namespace = "STATS",
+      description = "The number of values in a distribution sketch",
+      params = {"stats - The distribution sketch"}, returns = "The count")
+  public static class StatsCount extends BaseStellarFunction {
+    @Override
+    public Object apply(List<Object> list) {
+      if (list.size() < 1 || list.get(0) == null) {
+        return null;
+      }
+      return ((DistributionSketch<?>) list.get(0)).getCount();
+    }
+  }
+}
@@ -0,0 +1,76 @@
+package com.caseystella.sketchy.sketches.statistics.distribution;
+
+import com.caseystella.sketchy.sketches.statistics.distribution.sketchimpl.DistributionSketchImpl;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A bounded pool of empty sketches of a single type and k, so that sketches can be recycled when a
+ * time bin closes rather than allocated afresh. Typically the ingest path {@link #acquire()}s a
+ * sketch for each new bin, and the flush thread serializes the closed bin's sketch and
+ * {@link #release(DistributionSketch)}s it back.
+ *
+ * <p>
+ * The pool is thread-safe, though the sketches themselves are not: a sketch must not be used once
+ * it has been released. It never blocks; an empty pool creates a new sketch, and a full one drops
+ * the sketch it is given.
+ *
+ * <p>
+ * Only the quantile sketch of the classic types (DOUBLES and DOUBLES_COMPENSATED) is reset in
+ * place. The KLL sketch behind LONG, FLOAT and FLOAT_COMPENSATED cannot be reset in this version
+ * of datasketches, so pooling one of those recycles only its wrapper, and a new KLL sketch is
+ * still allocated on every release. MOMENTS has no quantile sketch to allocate.
+ */
+public class DistributionSketchPool<T extends Number> {
+  private final DistributionSketches type;
+  private final int k;
+  private final BlockingQueue<DistributionSketch<T>> pool;
+
+  public DistributionSketchPool(DistributionSketches type, int k, int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("The capacity must be positive: " + capacity);
+    }
+    this.type = type;
+    this.k = k;
+    this.pool = new ArrayBlockingQueue<>(capacity);
+  }
+
+  public DistributionSketches getType() {
+    return type;
+  }
+
+  public int getK() {
+    return k;
+  }
+
+  /**
+   * @return The number of sketches waiting in the pool.
+   */
+  public int size() {
+    return pool.size();
+  }
+
+  /**
+   * @return An empty sketch, from the pool if there is one.
+   */
+  public DistributionSketch<T> acquire() {
+    DistributionSketch<T> ret = pool.poll();
+    return ret == null ? type.create(k, null) : ret;
+  }
+
+  /**
+   * Reset a sketch and return it to the pool.
+   *
+   * @return false if the pool was full, in which case the sketch is left to the garbage collector.
+   * @throws IllegalArgumentException if the sketch is not a plain sketch of this pool's type and k.
+   */
+  public boolean release(DistributionSketch<T> sketch) {
+    if (!(sketch instanceof DistributionSketchImpl) || sketch.getType() != type
+        || sketch.getK() != k) {
+      throw new IllegalArgumentException("Unable to pool a " + sketch.getType() + " sketch with k="
+          + sketch.getK() + " in a pool of " + type + " sketches with k=" + k);
+    }
+    sketch.reset();
+    return pool.offer(sketch);
+  }
+}
@@ -1,22 +1,144 @@
 package com.caseystella.sketchy.sketches.statistics.distribution;
 
+import com.caseystella.sketchy.sketches.statistics.distribution.sketchimpl.CompensatedDoubleDistributionSketch;
+import com.caseystella.sketchy.sketches.statistics.distribution.sketchimpl.CompensatedFloatDistributionSketch;
+import com.caseystella.sketchy.sketches.statistics.distribution.sketchimpl.DistributionSketchFormat;
+import com.caseystella.sketchy.sketches.statistics.distribution.sketchimpl.DistributionSketchMerger;
 import com.caseystella.sketchy.sketches.statistics.distribution.sketchimpl.DoubleDistributionSketch;
 import com.caseystella.sketchy.sketches.statistics.distribution.sketchimpl.FloatDistributionSketch;
 import com.caseystella.sketchy.sketches.statistics.distribution.sketchimpl.LongDistributionSketch;
+import com.caseystella.sketchy.sketches.statistics.distribution.sketchimpl.MomentsDistributionSketch;
+import com.caseystella.sketchy.sketches.statistics.distribution.types.sketch.SketchTypes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.function.Function;
+import java.util.stream.Collector;
+import java.util.stream.DoubleStream;
 
+/**
+ * The available distribution sketches, by the type of value they hold and the quantile sketch which
+ * backs them (see {@link SketchTypes}). For the same rank error the KLL backed sketches are
+ * considerably smaller than those backed by the classic quantiles sketch, at the cost of holding
+ * their samples as floats.
+ */
 public enum DistributionSketches {
-  DOUBLES(k -> new DoubleDistributionSketch(k)), LONG(k -> new LongDistributionSketch(k)), FLOAT(
-      k -> new FloatDistributionSketch(k));
+  DOUBLES((byte) 1, Double.class, SketchTypes.DOUBLES_SKETCH,
+      k -> new DoubleDistributionSketch(k)), LONG((byte) 2, Long.class, SketchTypes.FLOATS_SKETCH,
+          k -> new LongDistributionSketch(k)), FLOAT((byte) 3, Double.class,
+              SketchTypes.FLOATS_SKETCH, k -> new FloatDistributionSketch(k)),
+  /**
+   * Only the count, sums, extrema and moments of doubles, with no quantile sketch; k is ignored and
+   * the percentile queries throw.
+   */
+  MOMENTS((byte) 4, Double.class, SketchTypes.MOMENTS_ONLY, k -> new MomentsDistributionSketch(k)),
+  /**
+   * As {@link #DOUBLES}, but with compensated summation of the sums and a check for overflow, for
+   * long running sketches whose sums would otherwise drift.
+   */
+  DOUBLES_COMPENSATED((byte) 5, Double.class, SketchTypes.DOUBLES_SKETCH,
+      k -> new CompensatedDoubleDistributionSketch(k)),
+  /**
+   * As {@link #FLOAT}, but with compensated summation of the sums and a check for overflow.
+   */
+  FLOAT_COMPENSATED((byte) 6, Double.class, SketchTypes.FLOATS_SKETCH,
+      k -> new CompensatedFloatDistributionSketch(k));
 
   public static final int DEFAULT_K = 128;
+  // A stable identifier for the type, used in binary formats in place of the class name
+  byte id;
+  Class<? extends Number> valueType;
+  SketchTypes backend;
   Function<Integer, DistributionSketch<? extends Number>> creator;
 
-  DistributionSketches(Function<Integer, DistributionSketch<? extends Number>> creator) {
+  DistributionSketches(byte id, Class<? extends Number> valueType, SketchTypes backend,
+      Function<Integer, DistributionSketch<? extends Number>> creator) {
+    this.id = id;
+    this.valueType = valueType;
+    this.backend = backend;
     this.creator = creator;
   }
 
+  /**
+   * @return The quantile sketch backing this type.
+   */
+  public SketchTypes getBackend() {
+    return backend;
+  }
+
+  public Class<? extends Number> getValueType() {
+    return valueType;
+  }
+
+  /**
+   * Select a distribution sketch by its value type and quantile sketch backend, e.g.
+   * {@code forBackend(Double.class, SketchTypes.FLOATS_SKETCH)} for doubles backed by KLL. Where
+   * there are plain and compensated sketches for the pair, the plain one is returned.
+   */
+  public static DistributionSketches forBackend(Class<? extends Number> valueType,
+      SketchTypes backend) {
+    for (DistributionSketches type : values()) {
+      if (type.valueType.equals(valueType) && type.backend == backend) {
+        return type;
+      }
+    }
+    throw new IllegalArgumentException(
+        "No distribution sketch of " + valueType.getSimpleName() + " backed by " + backend);
+  }
+
+  /**
+   * @return true if the sums are accumulated with compensated summation.
+   */
+  public boolean isCompensated() {
+    return this == DOUBLES_COMPENSATED || this == FLOAT_COMPENSATED;
+  }
+
+  /**
+   * The type which can hold the merge of sketches of types a and b.
+   * <ul>
+   * <li>The quantile sketches must share a backend, and sketches of different value types merge
+   * into the sketch of doubles with that backend, e.g. LONG and FLOAT merge into FLOAT.</li>
+   * <li>The result is compensated if either of the two is.</li>
+   * <li>MOMENTS only merges with MOMENTS, as anything else would lose its quantiles. To drop them
+   * on purpose, use {@link #mergeMoments(Collection)}.</li>
+   * </ul>
+   *
+   * @throws IllegalArgumentException if the two have different quantile sketch backends, or only
+   *         one of them is MOMENTS.
+   */
+  public static DistributionSketches commonType(DistributionSketches a, DistributionSketches b) {
+    if (a == b) {
+      return a;
+    }
+    if (a == MOMENTS || b == MOMENTS) {
+      throw new IllegalArgumentException("Merging a " + a + " sketch with a " + b
+          + " sketch would drop the quantiles; use DistributionSketches.mergeMoments to do so");
+    }
+    if (a.backend != b.backend) {
+      throw new IllegalArgumentException("Unable to merge a " + a + " sketch, backed by "
+          + a.backend + ", with a " + b + " sketch, backed by " + b.backend);
+    }
+    boolean compensated = a.isCompensated() || b.isCompensated();
+    if (a.backend == SketchTypes.DOUBLES_SKETCH) {
+      return compensated ? DOUBLES_COMPENSATED : DOUBLES;
+    }
+    return compensated ? FLOAT_COMPENSATED : FLOAT;
+  }
+
+  public byte getId() {
+    return id;
+  }
+
+  public static DistributionSketches fromId(byte id) {
+    for (DistributionSketches type : values()) {
+      if (type.id == id) {
+        return type;
+      }
+    }
+    throw new IllegalArgumentException("Unknown distribution sketch type: " + id);
+  }
+
   public <T extends Number> DistributionSketch<T> create(Class<T> clazz) {
     return create(DEFAULT_K, clazz);
   }
@@ -24,4 +146,195 @@ public enum DistributionSketches {
   public <T extends Number> DistributionSketch<T> create(int k, Class<T> clazz) {
     return (DistributionSketch<T>) creator.apply(k);
   }
+
+  /**
+   * The smallest k for which a sketch of this type has a normalized rank error of at most epsilon,
+   * for a single percentile at 99% confidence, e.g. 0.01 for percentiles within 1% in rank.
+   *
+   * @throws IllegalArgumentException if no sketch of this type is that accurate.
+   */
+  public int getKForError(double epsilon) {
+    return backend.getKForError(epsilon);
+  }
+
+  /**
+   * The largest k for which a sketch of this type holding n values takes at most maxBytes in the
+   * binary layout of {@link DistributionSketchFormat}.
+   *
+   * @throws IllegalArgumentException if no sketch of this type is that small.
+   */
+  public int getKForBudget(int maxBytes, long n) {
+    if (maxBytes < DistributionSketchFormat.HEADER_SIZE) {
+      throw new IllegalArgumentException("A budget of " + maxBytes
+          + " bytes is smaller than the header of " + DistributionSketchFormat.HEADER_SIZE);
+    }
+    return backend.getKForBudget(maxBytes - DistributionSketchFormat.HEADER_SIZE, n);
+  }
+
+  /**
+   * Create the smallest sketch with a normalized rank error of at most epsilon. See
+   * {@link #getKForError(double)}.
+   */
+  public <T extends Number> DistributionSketch<T> createForError(double epsilon, Class<T> clazz) {
+    return create(getKForError(epsilon), clazz);
+  }
+
+  /**
+   * Create the most accurate sketch which will take at most maxBytes once it holds n values. See
+   * {@link #getKForBudget(int, long)}.
+   */
+  public <T extends Number> DistributionSketch<T> createForBudget(int maxBytes, long n,
+      Class<T> clazz) {
+    return create(getKForBudget(maxBytes, n), clazz);
+  }
+
+  /**
+   * Create a sketch which may be written to from many threads at once.
+   */
+  public <T extends Number> ConcurrentDistributionSketch<T> createConcurrent(int k,
+      Class<T> clazz) {
+    return new ConcurrentDistributionSketch<>(this, k);
+  }
+
+  /**
+   * Create a sketch over a sliding window of time, made up of numBuckets buckets.
+   *
+   * @param windowMillis The length of the window, in milliseconds.
+   */
+  public <T extends Number> WindowedDistributionSketch<T> createWindowed(int k, long windowMillis,
+      int numBuckets, Class<T> clazz) {
+    return new WindowedDistributionSketch<>(this, k, windowMillis, numBuckets);
+  }
+
+  /**
+   * Create a pool of at most capacity empty sketches of this type, to recycle sketches between time
+   * bins. Only the DOUBLES types reuse their quantile sketch; see {@link DistributionSketchPool}.
+   */
+  public <T extends Number> DistributionSketchPool<T> createPool(int k, int capacity,
+      Class<T> clazz) {
+    return new DistributionSketchPool<>(this, k, capacity);
+  }
+
+  /**
+   * Merge a collection of sketches, of any types and k, in one pass. See
+   * {@link DistributionSketchMerger}. The values of the result are those of the
+   * {@link #commonType(DistributionSketches, DistributionSketches) common type}, so to merge
+   * sketches of different value types, e.g. LONG and FLOAT, T must be a type of both, e.g. Number.
+   */
+  public static <T extends Number> DistributionSketch<T> mergeAll(
+      Collection<? extends DistributionSketch<T>> sketches) {
+    return DistributionSketchMerger.mergeAll(sketches);
+  }
+
+  /**
+   * Merge the moments of a collection of sketches of any types and k into a MOMENTS sketch,
+   * dropping any quantiles.
+   */
+  public static DistributionSketch<Double> mergeMoments(
+      Collection<? extends DistributionSketch<?>> sketches) {
+    return DistributionSketchMerger.mergeMoments(sketches);
+  }
+
+  /**
+   * A collector which merges a stream of sketches. The sketches are only gathered as the stream is
+   * consumed, in parallel if it is parallel, and are then merged in a single pass at the end with
+   * {@link #mergeAll(Collection)}, as one union is cheaper than merging pairwise as they go.
+   *
+   * @return A collector of the merged sketch, which is empty if the stream was.
+   */
+  public static <T extends Number>
+      Collector<DistributionSketch<T>, ?, Optional<DistributionSketch<T>>> merging() {
+    return Collector.<DistributionSketch<T>, List<DistributionSketch<T>>,
+        Optional<DistributionSketch<T>>>of(ArrayList::new, List::add, (left, right) -> {
+          left.addAll(right);
+          return left;
+        }, sketches -> sketches.isEmpty() ? Optional.empty() : Optional.of(mergeAll(sketches)));
+  }
+
+  /**
+   * Build a sketch of the default k from a stream of values. See
+   * {@link #collect(DoubleStream, int)}.
+   */
+  public <T extends Number> DistributionSketch<T> collect(DoubleStream values) {
+    return collect(values, DEFAULT_K);
+  }
+
+  /**
+   * Build a sketch from a stream of values. If the stream is parallel, each spliterator chunk fills
+   * its own sketch, in batches through {@link DistributionSketch#addValues(double[], int, int)},
+   * and the chunks' sketches are combined with
+   * {@link DistributionSketch#merge(DistributionSketch)}.
+   */
+  public <T extends Number> DistributionSketch<T> collect(DoubleStream values, int k) {
+    return values.<Accumulator<T>>collect(() -> new Accumulator<>(create(k, null)),
+        Accumulator::addDouble, Accumulator::combine).finish();
+  }
+
+  /**
+   * A collector which builds a sketch of this type from a stream of numbers, skipping nulls. As
+   * with {@link #collect(DoubleStream, int)}, a parallel stream fills a sketch per chunk and merges
+   * them.
+   */
+  public <T extends Number> Collector<Number, ?, DistributionSketch<T>> collecting(int k,
+      Class<T> clazz) {
+    return Collector.<Number, Accumulator<T>, DistributionSketch<T>>of(
+        () -> new Accumulator<>(create(k, clazz)), Accumulator::addNumber, (left, right) -> {
+          left.combine(right);
+          return left;
+        }, Accumulator::finish, Collector.Characteristics.UNORDERED);
+  }
+
+  /**
+   * The mutable container of the collectors: a sketch, and a batch of values not yet added to it.
+   */
+  private static final class Accumulator<T extends Number> {
+    private static final int BATCH_SIZE = 1024;
+    private DistributionSketch<T> sketch;
+    private double[] batch;
+    private int size;
+
+    Accumulator(DistributionSketch<T> sketch) {
+      this.sketch = sketch;
+    }
+
+    void addDouble(double value) {
+      if (batch == null) {
+        batch = new double[BATCH_SIZE];
+      }
+      batch[size++] = value;
+      if (size == BATCH_SIZE) {
+        flush();
+      }
+    }
+
+    void addNumber(Number value) {
+      if (value == null) {
+        return;
+      }
+      if (value instanceof Long || value instanceof Integer || value instanceof Short
+          || value instanceof Byte) {
+        sketch.addLong(value.longValue());
+      } else {
+        addDouble(value.doubleValue());
+      }
+    }
+
+    private void flush() {
+      if (size > 0) {
+        sketch.addValues(batch, 0, size);
+        size = 0;
+      }
+    }
+
+    void combine(Accumulator<T> other) {
+      flush();
+      other.flush();
+      sketch = sketch.merge(other.sketch);
+    }
+
+    DistributionSketch<T> finish() {
+      flush();
+      return sketch;
+    }
+  }
 }
@@ -0,0 +1,372 @@
+package com.caseystella.sketchy.sketches.statistics.distribution;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import java.nio.DoubleBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.LongSupplier;
+
+/**
+ * A distribution sketch over a sliding window of time, e.g. the last 15 minutes. The window is split
+ * into a ring of fixed width buckets, each holding its own {@link DistributionSketch}, and values
+ * are always added to the bucket for the current time. When time moves into a new bucket the oldest
+ * slot in the ring is simply replaced, so expiry is O(1) and never touches the other buckets.
+ *
+ * <p>
+ * Reads are over the merge of the buckets in the window. The merge of the closed buckets only
+ * changes when a bucket rolls, so it is cached until then, and a read costs at most a single merge
+ * of that cached sketch with the current bucket.
+ *
+ * <p>
+ * Like the other sketches, this is not thread-safe.
+ */
+public class WindowedDistributionSketch<T extends Number> implements DistributionSketch<T> {
+  private DistributionSketches type;
+  private int k;
+  private long bucketMillis;
+  private DistributionSketch<T>[] buckets;
+  // The bucket number, i.e. time / bucketMillis, held by each slot of the ring
+  private long[] epochs;
+  private long currentEpoch = Long.MIN_VALUE;
+  private LongSupplier clock;
+  // The merge of the buckets in the window other than the current one
+  private DistributionSketch<T> closed;
+  // The merge of the whole window
+  private DistributionSketch<T> view;
+
+  private WindowedDistributionSketch() {
+    // for kryo
+    this.clock = System::currentTimeMillis;
+  }
+
+  public WindowedDistributionSketch(DistributionSketches type, int k, long windowMillis,
+      int numBuckets) {
+    this(type, k, windowMillis, numBuckets, System::currentTimeMillis);
+  }
+
+  WindowedDistributionSketch(DistributionSketches type, int k, long windowMillis, int numBuckets,
+      LongSupplier clock) {
+    if (numBuckets <= 0) {
+      throw new IllegalArgumentException("The number of buckets must be positive: " + numBuckets);
+    }
+    if (windowMillis < numBuckets) {
+      throw new IllegalArgumentException(
+          "The window of " + windowMillis + "ms is too small for " + numBuckets + " buckets.");
+    }
+    this.type = type;
+    this.k = k;
+    this.bucketMillis = windowMillis / numBuckets;
+    this.clock = clock;
+    init(numBuckets);
+  }
+
+  @SuppressWarnings("unchecked")
+  private void init(int numBuckets) {
+    buckets = new DistributionSketch[numBuckets];
+    epochs = new long[numBuckets];
+    closed = null;
+    view = null;
+  }
+
+  public long getBucketMillis() {
+    return bucketMillis;
+  }
+
+  public int getNumBuckets() {
+    return buckets.length;
+  }
+
+  private DistributionSketch<T> createSketch() {
+    return type.create(k, null);
+  }
+
+  private int slot(long epoch) {
+    return (int) Math.floorMod(epoch, (long) buckets.length);
+  }
+
+  private boolean isActive(int slot) {
+    return buckets[slot] != null && epochs[slot] > currentEpoch - buckets.length
+        && epochs[slot] <= currentEpoch;
+  }
+
+  /**
+   * Move the window up to the current time. Time running backwards leaves the window where it is.
+   */
+  private void roll() {
+    long epoch = Math.floorDiv(clock.getAsLong(), bucketMillis);
+    if (epoch > currentEpoch) {
+      currentEpoch = epoch;
+      closed = null;
+      view = null;
+    }
+  }
+
+  /**
+   * @return The bucket for the current time, evicting whatever expired bucket held its slot.
+   */
+  private DistributionSketch<T> current() {
+    roll();
+    int slot = slot(currentEpoch);
+    if (buckets[slot] == null || epochs[slot] != currentEpoch) {
+      buckets[slot] = createSketch();
+      epochs[slot] = currentEpoch;
+    }
+    view = null;
+    return buckets[slot];
+  }
+
+  private DistributionSketch<T> merged() {
+    roll();
+    if (view != null) {
+      return view;
+    }
+    int currentSlot = slot(currentEpoch);
+    if (closed == null) {
+      List<DistributionSketch<T>> active = new ArrayList<>(buckets.length);
+      for (int i = 0; i < buckets.length; ++i) {
+        if (i == currentSlot) {
+          continue;
+        }
+        if (isActive(i)) {
+          active.add(buckets[i]);
+        } else {
+          // expired, so let it go rather than waiting for its slot to come around again
+          buckets[i] = null;
+        }
+      }
+      closed = active.isEmpty() ? createSketch() : DistributionSketches.mergeAll(active);
+    }
+    view = isActive(currentSlot) ? closed.merge(buckets[currentSlot]) : closed;
+    return view;
+  }
+
+  /**
+   * @return The merge of the buckets currently in the window. This is shared with the sketch until
+   *         it is next written to or the window moves, so it must not be modified.
+   */
+  public DistributionSketch<T> snapshot() {
+    return merged();
+  }
+
+  @Override
+  public DistributionSketches getType() {
+    return type;
+  }
+
+  @Override
+  public int getK() {
+    return k;
+  }
+
+  @Override
+  public void addValue(T value) {
+    current().addValue(value);
+  }
+
+  @Override
+  public void addDouble(double value) {
+    current().addDouble(value);
+  }
+
+  @Override
+  public void addLong(long value) {
+    current().addLong(value);
+  }
+
+  @Override
+  public void addFloat(float value) {
+    current().addFloat(value);
+  }
+
+  @Override
+  public void addValues(double[] values, int off, int len) {
+    current().addValues(values, off, len);
+  }
+
+  @Override
+  public void addValues(long[] values, int off, int len) {
+    current().addValues(values, off, len);
+  }
+
+  @Override
+  public void addValues(DoubleBuffer values) {
+    current().addValues(values);
+  }
+
+  @Override
+  public void addValues(LongBuffer values) {
+    current().addValues(values);
+  }
+
+  @Override
+  public long getCount() {
+    return merged().getCount();
+  }
+
+  @Override
+  public Optional<T> getMin() {
+    return merged().getMin();
+  }
+
+  @Override
+  public Optional<T> getMax() {
+    return merged().getMax();
+  }
+
+  @Override
+  public double getMean() {
+    return merged().getMean();
+  }
+
+  @Override
+  public T getSum() {
+    return merged().getSum();
+  }
+
+  @Override
+  public double getVariance() {
+    return merged().getVariance();
+  }
+
+  @Override
+  public double getStandardDeviation() {
+    return merged().getStandardDeviation();
+  }
+
+  @Override
+  public double getGeometricMean() {
+    return merged().getGeometricMean();
+  }
+
+  @Override
+  public double getPopulationVariance() {
+    return merged().getPopulationVariance();
+  }
+
+  @Override
+  public double getQuadraticMean() {
+    return merged().getQuadraticMean();
+  }
+
+  @Override
+  public double getSumLogs() {
+    return merged().getSumLogs();
+  }
+
+  @Override
+  public T getSumSquares() {
+    return merged().getSumSquares();
+  }
+
+  @Override
+  public double getKurtosis() {
+    return merged().getKurtosis();
+  }
+
+  @Override
+  public double getSkewness() {
+    return merged().getSkewness();
+  }
+
+  @Override
+  public double getPercentile(double p) {
+    return merged().getPercentile(p);
+  }
+
+  @Override
+  public double[] getPercentiles(double[] ps) {
+    return merged().getPercentiles(ps);
+  }
+
+  @Override
+  public double[] getCDF(double[] splitPoints) {
+    return merged().getCDF(splitPoints);
+  }
+
+  @Override
+  public double[] getPMF(double[] splitPoints) {
+    return merged().getPMF(splitPoints);
+  }
+
+  @Override
+  public double getRank(double value) {
+    return merged().getRank(value);
+  }
+
+  @Override
+  public double getNormalizedRankError() {
+    return merged().getNormalizedRankError();
+  }
+
+  @Override
+  public int getSerializedSizeBytes() {
+    return merged().getSerializedSizeBytes();
+  }
+
+  /**
+   * Merge the current window with another sketch. The result is a new, non-windowed, sketch.
+   */
+  @Override
+  public DistributionSketch<T> merge(DistributionSketch<T> sketch) {
+    DistributionSketch<T> other = sketch instanceof WindowedDistributionSketch
+        ? ((WindowedDistributionSketch<T>) sketch).snapshot()
+        : sketch;
+    return merged().merge(other);
+  }
+
+  /**
+   * Drop every bucket, leaving the window where it is in time.
+   */
+  @Override
+  public void reset() {
+    Arrays.fill(buckets, null);
+    closed = null;
+    view = null;
+  }
+
+  @Override
+  public void write(Kryo kryo, Output output) {
+    output.writeString(type.name());
+    output.writeInt(k);
+    output.writeLong(bucketMillis);
+    output.writeInt(buckets.length);
+    output.writeLong(currentEpoch);
+    for (int i = 0; i < buckets.length; ++i) {
+      boolean active = isActive(i);
+      output.writeBoolean(active);
+      if (active) {
+        output.writeLong(epochs[i]);
+        buckets[i].write(kryo, output);
+      }
+    }
+  }
+
+  @Override
+  public void read(Kryo kryo, Input input) {
+    type = DistributionSketches.valueOf(input.readString());
+    k = input.readInt();
+    bucketMillis = input.readLong();
+    init(input.readInt());
+    currentEpoch = input.readLong();
+    for (int i = 0; i < buckets.length; ++i) {
+      if (input.readBoolean()) {
+        epochs[i] = input.readLong();
+        // read into a fresh, heap sketch, whose quantile sketch is updatable, as the current bucket
+        // goes on being added to
+        buckets[i] = createSketch();
+        buckets[i].read(kryo, input);
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "WindowedDistributionSketch{" + "type=" + type + ", bucketMillis=" + bucketMillis
+        + ", buckets=" + buckets.length + ", merged=" + merged() + '}';
+  }
+}
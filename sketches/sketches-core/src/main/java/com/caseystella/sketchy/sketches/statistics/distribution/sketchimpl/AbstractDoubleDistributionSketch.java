@@ -0,0 +1,308 @@
+package com.caseystella.sketchy.sketches.statistics.distribution.sketchimpl;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import java.nio.ByteBuffer;
+import java.util.Optional;
+
+/**
+ * A distribution sketch over doubles which keeps its sum, sum of squares, min and max as primitive
+ * doubles so that adding a value allocates nothing. The serialized form is the same as the one
+ * written by {@link com.caseystella.sketchy.sketches.statistics.distribution.types.number.DoubleType}.
+ *
+ * <p>
+ * Sketches constructed as compensated accumulate the sum and sum of squares with Neumaier's variant
+ * of Kahan summation, carrying the rounding error of each addition in a second double, so that the
+ * sums (and with them the mean and quadratic mean) do not drift over billions of values. They also
+ * check for overflow as they go, rejecting the value rather than silently returning infinities.
+ */
+public abstract class AbstractDoubleDistributionSketch<S> extends DistributionSketchImpl<Double, S> {
+  private static final long serialVersionUID = 1L;
+  // Sentinels matching DoubleType.maxValue() and DoubleType.minValue()
+  private static final double EMPTY_MIN = Double.MAX_VALUE;
+  private static final double EMPTY_MAX = Long.MIN_VALUE * 1.0;
+
+  protected double sum = 0;
+  protected double sumOfSquares = 0;
+  protected double min = EMPTY_MIN;
+  protected double max = EMPTY_MAX;
+  // The rounding error lost from sum and sumOfSquares, only accumulated when compensated
+  protected double sumCompensation = 0;
+  protected double sumOfSquaresCompensation = 0;
+  private final boolean compensated;
+
+  public AbstractDoubleDistributionSketch() {
+    super();
+    this.compensated = false;
+  }
+
+  public AbstractDoubleDistributionSketch(int k) {
+    this(k, false);
+  }
+
+  protected AbstractDoubleDistributionSketch(int k, boolean compensated) {
+    super(k);
+    this.compensated = compensated;
+  }
+
+  /**
+   * @return true if the sums are accumulated with compensated summation.
+   */
+  public boolean isCompensated() {
+    return compensated;
+  }
+
+  /**
+   * The rounding error of s = a + b, which Neumaier's summation adds back in at the end.
+   */
+  private static double twoSumError(double a, double b, double s) {
+    return Math.abs(a) >= Math.abs(b) ? (a - s) + b : (b - s) + a;
+  }
+
+  /**
+   * Compensated sketches reject a value which would overflow the sums, leaving the sketch exactly
+   * as it was, so that it can still be added to afterwards.
+   */
+  @Override
+  public void addDouble(double value) {
+    if (compensated) {
+      double square = value * value;
+      double s = sum + value;
+      double ss = sumOfSquares + square;
+      checkFlowError(s, ss);
+      // checks the moments before anything is stored
+      updateMoments(value, true);
+      sumCompensation += twoSumError(sum, value, s);
+      sumOfSquaresCompensation += twoSumError(sumOfSquares, square, ss);
+      sum = s;
+      sumOfSquares = ss;
+      min = Math.min(min, value);
+      max = Math.max(max, value);
+    } else {
+      min = Math.min(min, value);
+      max = Math.max(max, value);
+      sum += value;
+      sumOfSquares += value * value;
+      updateMoments(value);
+    }
+  }
+
+  @Override
+  public void addLong(long value) {
+    addDouble(value);
+  }
+
+  @Override
+  public void addValues(double[] values, int off, int len) {
+    checkRange(values.length, off, len);
+    if (compensated) {
+      addValuesCompensated(values, off, len);
+      return;
+    }
+    double s = sum, ss = sumOfSquares, lo = min, hi = max;
+    for (int i = off; i < off + len; ++i) {
+      double value = values[i];
+      lo = Math.min(lo, value);
+      hi = Math.max(hi, value);
+      s += value;
+      ss += value * value;
+    }
+    sum = s;
+    sumOfSquares = ss;
+    min = lo;
+    max = hi;
+    updateMoments(values, off, len);
+  }
+
+  /**
+   * The block is all or nothing: the sums are accumulated in locals and checked once at the end,
+   * as an infinity is sticky, and only if they are fine is anything written to the sketch. So when
+   * a value in the block would overflow, none of the block is added.
+   */
+  private void addValuesCompensated(double[] values, int off, int len) {
+    double s = sum, ss = sumOfSquares, lo = min, hi = max;
+    double c = sumCompensation, cc = sumOfSquaresCompensation;
+    for (int i = off; i < off + len; ++i) {
+      double value = values[i];
+      double square = value * value;
+      lo = Math.min(lo, value);
+      hi = Math.max(hi, value);
+      double t = s + value;
+      c += twoSumError(s, value, t);
+      s = t;
+      t = ss + square;
+      cc += twoSumError(ss, square, t);
+      ss = t;
+    }
+    checkFlowError(s, ss);
+    updateMoments(values, off, len, true);
+    sum = s;
+    sumOfSquares = ss;
+    sumCompensation = c;
+    sumOfSquaresCompensation = cc;
+    min = lo;
+    max = hi;
+  }
+
+  @Override
+  public Optional<Double> getMin() {
+    return min == EMPTY_MIN ? Optional.empty() : Optional.of(min);
+  }
+
+  @Override
+  public Optional<Double> getMax() {
+    return max == EMPTY_MAX ? Optional.empty() : Optional.of(max);
+  }
+
+  @Override
+  public Double getSum() {
+    return sum + sumCompensation;
+  }
+
+  @Override
+  public Double getSumSquares() {
+    return sumOfSquares + sumOfSquaresCompensation;
+  }
+
+  @Override
+  protected void mergeScalars(DistributionSketchImpl<Double, S> other,
+      DistributionSketchImpl<Double, S> combined) {
+    AbstractDoubleDistributionSketch<S> b = (AbstractDoubleDistributionSketch<S>) other;
+    AbstractDoubleDistributionSketch<S> c = (AbstractDoubleDistributionSketch<S>) combined;
+    if (c.compensated) {
+      double s = sum + b.sum;
+      double ss = sumOfSquares + b.sumOfSquares;
+      double sc = sumCompensation + b.sumCompensation + twoSumError(sum, b.sum, s);
+      double ssc = sumOfSquaresCompensation + b.sumOfSquaresCompensation
+          + twoSumError(sumOfSquares, b.sumOfSquares, ss);
+      c.sum = s;
+      c.sumOfSquares = ss;
+      c.sumCompensation = sc;
+      c.sumOfSquaresCompensation = ssc;
+    } else {
+      c.sum = sum + b.sum;
+      c.sumOfSquares = sumOfSquares + b.sumOfSquares;
+    }
+    c.min = Math.min(min, b.min);
+    c.max = Math.max(max, b.max);
+  }
+
+  @Override
+  protected void combineScalars(DistributionSketchImpl<?, ?> a, DistributionSketchImpl<?, ?> b) {
+    double aSum = a.getSum().doubleValue();
+    double bSum = b.getSum().doubleValue();
+    double aSquares = a.getSumSquares().doubleValue();
+    double bSquares = b.getSumSquares().doubleValue();
+    double lo = Math.min(minOf(a), minOf(b));
+    double hi = Math.max(maxOf(a), maxOf(b));
+    sum = aSum + bSum;
+    sumOfSquares = aSquares + bSquares;
+    sumCompensation = compensated ? twoSumError(aSum, bSum, sum) : 0;
+    sumOfSquaresCompensation = compensated ? twoSumError(aSquares, bSquares, sumOfSquares) : 0;
+    min = lo;
+    max = hi;
+  }
+
+  private static double minOf(DistributionSketchImpl<?, ?> s) {
+    Optional<? extends Number> ret = s.getMin();
+    return ret.isPresent() ? ret.get().doubleValue() : EMPTY_MIN;
+  }
+
+  private static double maxOf(DistributionSketchImpl<?, ?> s) {
+    Optional<? extends Number> ret = s.getMax();
+    return ret.isPresent() ? ret.get().doubleValue() : EMPTY_MAX;
+  }
+
+  @Override
+  protected void copyScalarsFrom(DistributionSketchImpl<Double, S> s) {
+    AbstractDoubleDistributionSketch<S> other = (AbstractDoubleDistributionSketch<S>) s;
+    this.sum = other.sum;
+    this.sumOfSquares = other.sumOfSquares;
+    this.sumCompensation = other.sumCompensation;
+    this.sumOfSquaresCompensation = other.sumOfSquaresCompensation;
+    this.min = other.min;
+    this.max = other.max;
+  }
+
+  @Override
+  protected void resetScalars() {
+    sum = 0;
+    sumOfSquares = 0;
+    sumCompensation = 0;
+    sumOfSquaresCompensation = 0;
+    min = EMPTY_MIN;
+    max = EMPTY_MAX;
+  }
+
+  @Override
+  protected boolean isIntegral() {
+    return false;
+  }
+
+  @Override
+  protected void writeScalars(ByteBuffer buf, int start) {
+    DistributionSketchFormat.putDouble(buf, start + DistributionSketchFormat.SUM_OFFSET, sum);
+    DistributionSketchFormat.putDouble(buf, start + DistributionSketchFormat.SUM_OF_SQUARES_OFFSET,
+        sumOfSquares);
+    DistributionSketchFormat.putDouble(buf,
+        start + DistributionSketchFormat.SUM_COMPENSATION_OFFSET, sumCompensation);
+    DistributionSketchFormat.putDouble(buf,
+        start + DistributionSketchFormat.SUM_OF_SQUARES_COMPENSATION_OFFSET,
+        sumOfSquaresCompensation);
+    DistributionSketchFormat.putDouble(buf, start + DistributionSketchFormat.MIN_OFFSET, min);
+    DistributionSketchFormat.putDouble(buf, start + DistributionSketchFormat.MAX_OFFSET, max);
+  }
+
+  @Override
+  protected void readScalars(ByteBuffer buf, int start) {
+    sum = DistributionSketchFormat.getDouble(buf, start + DistributionSketchFormat.SUM_OFFSET);
+    sumOfSquares = DistributionSketchFormat.getDouble(buf,
+        start + DistributionSketchFormat.SUM_OF_SQUARES_OFFSET);
+    sumCompensation = DistributionSketchFormat.getDouble(buf,
+        start + DistributionSketchFormat.SUM_COMPENSATION_OFFSET);
+    sumOfSquaresCompensation = DistributionSketchFormat.getDouble(buf,
+        start + DistributionSketchFormat.SUM_OF_SQUARES_COMPENSATION_OFFSET);
+    min = DistributionSketchFormat.getDouble(buf, start + DistributionSketchFormat.MIN_OFFSET);
+    max = DistributionSketchFormat.getDouble(buf, start + DistributionSketchFormat.MAX_OFFSET);
+  }
+
+  /**
+   * The compensated sketches also write the rounding errors carried alongside the sums, so that a
+   * sketch which is read, added to and written back between batches does not lose them each time.
+   * Whether they are there follows from the class, which Kryo records.
+   */
+  @Override
+  protected void writeSums(Output output) {
+    output.writeDouble(sum);
+    output.writeDouble(sumOfSquares);
+    if (compensated) {
+      output.writeDouble(sumCompensation);
+      output.writeDouble(sumOfSquaresCompensation);
+    }
+  }
+
+  @Override
+  protected void readSums(Input input) {
+    sum = input.readDouble();
+    sumOfSquares = input.readDouble();
+    if (compensated) {
+      sumCompensation = input.readDouble();
+      sumOfSquaresCompensation = input.readDouble();
+    } else {
+      sumCompensation = 0;
+      sumOfSquaresCompensation = 0;
+    }
+  }
+
+  @Override
+  protected void writeExtrema(Output output) {
+    output.writeDouble(min);
+    output.writeDouble(max);
+  }
+
+  @Override
+  protected void readExtrema(Input input) {
+    min = input.readDouble();
+    max = input.readDouble();
+  }
+}
@@ -0,0 +1,29 @@
+package com.caseystella.sketchy.sketches.statistics.distribution.sketchimpl;
+
+import com.caseystella.sketchy.sketches.statistics.distribution.DistributionSketches;
+import org.apache.datasketches.quantiles.DoublesSketch;
+
+/**
+ * A {@link DoubleDistributionSketch} whose sums are accumulated with compensated summation and
+ * which rejects values that would overflow. See {@link AbstractDoubleDistributionSketch}.
+ */
+public class CompensatedDoubleDistributionSketch extends DoubleDistributionSketch {
+
+  public CompensatedDoubleDistributionSketch() {
+    this(DistributionSketches.DEFAULT_K);
+  }
+
+  public CompensatedDoubleDistributionSketch(int k) {
+    super(k, true);
+  }
+
+  @Override
+  public DistributionSketches getType() {
+    return DistributionSketches.DOUBLES_COMPENSATED;
+  }
+
+  @Override
+  protected DistributionSketchImpl<Double, DoublesSketch> createNew() {
+    return new CompensatedDoubleDistributionSketch(getK());
+  }
+}
@@ -0,0 +1,29 @@
+package com.caseystella.sketchy.sketches.statistics.distribution.sketchimpl;
+
+import com.caseystella.sketchy.sketches.statistics.distribution.DistributionSketches;
+import org.apache.datasketches.kll.KllFloatsSketch;
+
+/**
+ * A {@link FloatDistributionSketch} whose sums are accumulated with compensated summation and
+ * which rejects values that would overflow. See {@link AbstractDoubleDistributionSketch}.
+ */
+public class CompensatedFloatDistributionSketch extends FloatDistributionSketch {
+
+  public CompensatedFloatDistributionSketch() {
+    this(DistributionSketches.DEFAULT_K);
+  }
+
+  public CompensatedFloatDistributionSketch(int k) {
+    super(k, true);
+  }
+
+  @Override
+  public DistributionSketches getType() {
+    return DistributionSketches.FLOAT_COMPENSATED;
+  }
+
+  @Override
+  protected DistributionSketchImpl<Double, KllFloatsSketch> createNew() {
+    return new CompensatedFloatDistributionSketch(getK());
+  }
+}
@@ -0,0 +1,235 @@
+package com.caseystella.sketchy.sketches.statistics.distribution.sketchimpl;
+
+import com.caseystella.sketchy.sketches.statistics.distribution.DistributionSketch;
+import com.caseystella.sketchy.sketches.statistics.distribution.DistributionSketches;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.WritableMemory;
+
+/**
+ * A versioned, fixed-offset, little-endian binary layout for distribution sketches which, unlike
+ * the Kryo form, carries no class name. The first order statistics sit at fixed offsets in the
+ * header, so they can be read straight out of a buffer without touching the quantile sketch:
+ *
+ * <pre>
+ *  0: byte   format version
+ *  1: byte   sketch type (see {@link DistributionSketches#getId()})
+ *  2: byte   flags; bit 0 is set if sum, sumOfSquares, min and max are longs rather than doubles
+ *  3: byte   unused
+ *  4: int    k
+ *  8: long   n
+ * 16: 8 byte sum
+ * 24: 8 byte sumOfSquares
+ * 32: double sumOfLogs
+ * 40: 8 byte min
+ * 48: 8 byte max
+ * 56: double M1
+ * 64: double M2
+ * 72: double M3
+ * 80: double M4
+ * 88: int    length of the quantile sketch
+ * 92: int    unused
+ * 96: double rounding error carried by sum, for compensated sketches and 0 otherwise
+ *104: double rounding error carried by sumOfSquares
+ *112: the quantile sketch, in its own compact serialized form
+ * </pre>
+ *
+ * All offsets are relative to the buffer's position and reading does not move the position.
+ */
+public final class DistributionSketchFormat {
+  public static final byte VERSION = 1;
+  public static final byte FLAG_INTEGRAL = 1;
+
+  static final int VERSION_OFFSET = 0;
+  static final int TYPE_OFFSET = 1;
+  static final int FLAGS_OFFSET = 2;
+  static final int K_OFFSET = 4;
+  static final int N_OFFSET = 8;
+  static final int SUM_OFFSET = 16;
+  static final int SUM_OF_SQUARES_OFFSET = 24;
+  static final int SUM_OF_LOGS_OFFSET = 32;
+  static final int MIN_OFFSET = 40;
+  static final int MAX_OFFSET = 48;
+  static final int M1_OFFSET = 56;
+  static final int M2_OFFSET = 64;
+  static final int M3_OFFSET = 72;
+  static final int M4_OFFSET = 80;
+  static final int SKETCH_LENGTH_OFFSET = 88;
+  static final int SUM_COMPENSATION_OFFSET = 96;
+  static final int SUM_OF_SQUARES_COMPENSATION_OFFSET = 104;
+  public static final int HEADER_SIZE = 112;
+
+  private DistributionSketchFormat() {
+    // do not instantiate
+  }
+
+  private static DistributionSketchImpl<?, ?> impl(DistributionSketch<?> sketch) {
+    if (!(sketch instanceof DistributionSketchImpl)) {
+      throw new IllegalArgumentException(
+          "Unable to write a " + sketch.getClass().getName() + " in the fixed layout.");
+    }
+    return (DistributionSketchImpl<?, ?>) sketch;
+  }
+
+  public static int getSerializedSizeBytes(DistributionSketch<?> sketch) {
+    return HEADER_SIZE + impl(sketch).getSketchSerializedSizeBytes();
+  }
+
+  public static byte[] toBytes(DistributionSketch<?> sketch) {
+    ByteBuffer buf = ByteBuffer.allocate(getSerializedSizeBytes(sketch));
+    write(sketch, buf);
+    return buf.array();
+  }
+
+  /**
+   * Write the sketch at the buffer's position and advance the position past it.
+   */
+  public static void write(DistributionSketch<?> sketch, ByteBuffer buf) {
+    DistributionSketchImpl<?, ?> s = impl(sketch);
+    int sketchLength = s.getSketchSerializedSizeBytes();
+    int start = buf.position();
+    buf.put(start + VERSION_OFFSET, VERSION);
+    buf.put(start + TYPE_OFFSET, s.getType().getId());
+    buf.put(start + FLAGS_OFFSET, s.isIntegral() ? FLAG_INTEGRAL : 0);
+    putInt(buf, start + K_OFFSET, s.k);
+    putLong(buf, start + N_OFFSET, s.n);
+    // only the compensated sketches write these
+    putDouble(buf, start + SUM_COMPENSATION_OFFSET, 0);
+    putDouble(buf, start + SUM_OF_SQUARES_COMPENSATION_OFFSET, 0);
+    s.writeScalars(buf, start);
+    putDouble(buf, start + SUM_OF_LOGS_OFFSET, s.sumOfLogs);
+    putDouble(buf, start + M1_OFFSET, s.M1);
+    putDouble(buf, start + M2_OFFSET, s.M2);
+    putDouble(buf, start + M3_OFFSET, s.M3);
+    putDouble(buf, start + M4_OFFSET, s.M4);
+    putInt(buf, start + SKETCH_LENGTH_OFFSET, sketchLength);
+    s.writeSketch(WritableMemory.wrap(sketchRegion(buf, HEADER_SIZE, sketchLength)));
+    buf.position(start + HEADER_SIZE + sketchLength);
+  }
+
+  /**
+   * Read a sketch, copying the quantile sketch onto the heap. This is the equivalent of reading the
+   * sketch back with Kryo.
+   */
+  public static <T extends Number> DistributionSketch<T> read(ByteBuffer buf) {
+    return read(buf, false);
+  }
+
+  /**
+   * Read a sketch whose quantile sketch is wrapped in place where the sketch type allows it. The
+   * result is only valid for as long as the buffer is. Adding to it copies the quantile sketch onto
+   * the heap first, leaving the buffer untouched.
+   */
+  public static <T extends Number> DistributionSketch<T> wrap(ByteBuffer buf) {
+    return read(buf, true);
+  }
+
+  private static <T extends Number> DistributionSketch<T> read(ByteBuffer buf, boolean wrap) {
+    int start = buf.position();
+    checkVersion(buf);
+    DistributionSketches type = DistributionSketches.fromId(buf.get(start + TYPE_OFFSET));
+    DistributionSketch<T> ret = type.create(getInt(buf, start + K_OFFSET), null);
+    DistributionSketchImpl<?, ?> s = impl(ret);
+    s.n = getLong(buf, start + N_OFFSET);
+    s.readScalars(buf, start);
+    s.sumOfLogs = getDouble(buf, start + SUM_OF_LOGS_OFFSET);
+    s.M1 = getDouble(buf, start + M1_OFFSET);
+    s.M2 = getDouble(buf, start + M2_OFFSET);
+    s.M3 = getDouble(buf, start + M3_OFFSET);
+    s.M4 = getDouble(buf, start + M4_OFFSET);
+    int sketchLength = getInt(buf, start + SKETCH_LENGTH_OFFSET);
+    s.readSketch(Memory.wrap(sketchRegion(buf, HEADER_SIZE, sketchLength)), wrap);
+    return ret;
+  }
+
+  private static ByteBuffer sketchRegion(ByteBuffer buf, int headerSize, int sketchLength) {
+    ByteBuffer region = buf.duplicate();
+    region.position(buf.position() + headerSize);
+    region.limit(buf.position() + headerSize + sketchLength);
+    return region.slice().order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  private static void checkVersion(ByteBuffer buf) {
+    byte version = buf.get(buf.position() + VERSION_OFFSET);
+    if (version != VERSION) {
+      throw new IllegalStateException("Unsupported distribution sketch format version: " + version);
+    }
+  }
+
+  public static DistributionSketches getType(ByteBuffer buf) {
+    checkVersion(buf);
+    return DistributionSketches.fromId(buf.get(buf.position() + TYPE_OFFSET));
+  }
+
+  public static int getK(ByteBuffer buf) {
+    return getInt(buf, buf.position() + K_OFFSET);
+  }
+
+  public static long getCount(ByteBuffer buf) {
+    return getLong(buf, buf.position() + N_OFFSET);
+  }
+
+  public static double getSum(ByteBuffer buf) {
+    return getScalar(buf, SUM_OFFSET) + getDouble(buf, buf.position() + SUM_COMPENSATION_OFFSET);
+  }
+
+  public static double getMean(ByteBuffer buf) {
+    return getSum(buf) / getCount(buf);
+  }
+
+  public static double getVariance(ByteBuffer buf) {
+    return getDouble(buf, buf.position() + M2_OFFSET) / (getCount(buf) - 1.0);
+  }
+
+  /**
+   * @return The minimum, or NaN if the sketch is empty.
+   */
+  public static double getMin(ByteBuffer buf) {
+    return getCount(buf) == 0 ? Double.NaN : getScalar(buf, MIN_OFFSET);
+  }
+
+  /**
+   * @return The maximum, or NaN if the sketch is empty.
+   */
+  public static double getMax(ByteBuffer buf) {
+    return getCount(buf) == 0 ? Double.NaN : getScalar(buf, MAX_OFFSET);
+  }
+
+  private static double getScalar(ByteBuffer buf, int offset) {
+    int start = buf.position();
+    if ((buf.get(start + FLAGS_OFFSET) & FLAG_INTEGRAL) != 0) {
+      return getLong(buf, start + offset);
+    }
+    return getDouble(buf, start + offset);
+  }
+
+  // The layout is little-endian regardless of the buffer's byte order, and we swap rather than
+  // duplicate the buffer with a different order so that the readers don't allocate.
+
+  static void putInt(ByteBuffer buf, int index, int v) {
+    buf.putInt(index, buf.order() == ByteOrder.LITTLE_ENDIAN ? v : Integer.reverseBytes(v));
+  }
+
+  static int getInt(ByteBuffer buf, int index) {
+    int v = buf.getInt(index);
+    return buf.order() == ByteOrder.LITTLE_ENDIAN ? v : Integer.reverseBytes(v);
+  }
+
+  static void putLong(ByteBuffer buf, int index, long v) {
+    buf.putLong(index, buf.order() == ByteOrder.LITTLE_ENDIAN ? v : Long.reverseBytes(v));
+  }
+
+  static long getLong(ByteBuffer buf, int index) {
+    long v = buf.getLong(index);
+    return buf.order() == ByteOrder.LITTLE_ENDIAN ? v : Long.reverseBytes(v);
+  }
+
+  static void putDouble(ByteBuffer buf, int index, double v) {
+    putLong(buf, index, Double.doubleToRawLongBits(v));
+  }
+
+  static double getDouble(ByteBuffer buf, int index) {
+    return Double.longBitsToDouble(getLong(buf, index));
+  }
+}
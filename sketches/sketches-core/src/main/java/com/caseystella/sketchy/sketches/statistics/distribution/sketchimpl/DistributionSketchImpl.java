@@ -18,7 +18,7 @@
 package com.caseystella.sketchy.sketches.statistics.distribution.sketchimpl;
 
 import com.caseystella.sketchy.sketches.statistics.distribution.DistributionSketch;
-import com.caseystella.sketchy.sketches.statistics.distribution.types.number.NumberType;
+import com.caseystella.sketchy.sketches.statistics.distribution.DistributionSketches;
 import com.caseystella.sketchy.sketches.statistics.distribution.types.sketch.SketchType;
 import com.caseystella.sketchy.utilities.SerDeUtils;
 import com.esotericsoftware.kryo.Kryo;
@@ -26,9 +26,13 @@ import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
 import java.io.IOException;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.LongBuffer;
 import java.util.Objects;
-import java.util.Optional;
 import org.apache.commons.math3.util.FastMath;
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.WritableMemory;
 
 /**
  * A (near) constant memory implementation of a statistics provider. For first order statistics,
@@ -39,14 +43,9 @@ public abstract class DistributionSketchImpl<T extends Number, S>
     implements DistributionSketch<T>, Serializable {
   private static final long serialVersionUID = 1L;
   transient protected SketchType<S> sketchType;
-  transient protected NumberType<T> numberType;
   protected S sketch;
   protected long n = 0;
-  protected T sum;
-  protected T sumOfSquares;
   protected double sumOfLogs = 0;
-  protected T min;
-  protected T max;
 
   // \mu_1, E[X]
   protected double M1 = 0;
@@ -65,31 +64,78 @@ public abstract class DistributionSketchImpl<T extends Number, S>
 
   public DistributionSketchImpl(int k) {
     this.k = k;
-    this.numberType = createNumberType();
     this.sketchType = createSketchType(k);
     sketch = sketchType.createSketch();
-    sum = numberType.zero();
-    sumOfSquares = numberType.zero();
-    min = numberType.maxValue();
-    max = numberType.minValue();
   }
 
-  abstract protected NumberType<T> createNumberType();
-
   abstract protected SketchType<S> createSketchType(int k);
 
   abstract protected DistributionSketchImpl<T, S> createNew();
 
+  /**
+   * Combine the sum, sum of squares, min and max of this sketch and another into the combined
+   * sketch. These are held as primitives by the subclasses, so they are merged there.
+   */
+  abstract protected void mergeScalars(DistributionSketchImpl<T, S> other,
+      DistributionSketchImpl<T, S> combined);
+
+  abstract protected void copyScalarsFrom(DistributionSketchImpl<T, S> s);
+
+  /**
+   * Set the sum, sum of squares, min and max of this sketch to those of two sketches of other types
+   * combined. Only the sketches which can hold the result of merging different types, see
+   * {@link DistributionSketches#commonType(DistributionSketches, DistributionSketches)}, support
+   * this.
+   */
+  protected void combineScalars(DistributionSketchImpl<?, ?> a, DistributionSketchImpl<?, ?> b) {
+    throw new IllegalArgumentException("Unable to merge a " + a.getType() + " and a " + b.getType()
+        + " sketch into a " + getType() + " sketch.");
+  }
+
+  /**
+   * Set the sum, sum of squares, min and max back to those of an empty sketch.
+   */
+  abstract protected void resetScalars();
+
+  abstract protected void writeSums(Output output);
+
+  abstract protected void readSums(Input input);
+
+  abstract protected void writeExtrema(Output output);
+
+  abstract protected void readExtrema(Input input);
+
+  /**
+   * @return true if the sum, sum of squares, min and max are held as longs rather than doubles.
+   */
+  abstract protected boolean isIntegral();
+
+  /**
+   * Write the sum, sum of squares, min and max at their offsets in the
+   * {@link DistributionSketchFormat} record starting at start.
+   */
+  abstract protected void writeScalars(ByteBuffer buf, int start);
+
+  abstract protected void readScalars(ByteBuffer buf, int start);
+
+  int getSketchSerializedSizeBytes() {
+    return sketchType.getSerializedSizeBytes(sketch);
+  }
+
+  void writeSketch(WritableMemory mem) {
+    sketchType.serialize(sketch, mem);
+  }
+
+  void readSketch(Memory mem, boolean wrap) {
+    sketch = wrap ? sketchType.wrap(mem) : sketchType.heapify(mem);
+  }
+
   private void copyFrom(DistributionSketchImpl<T, S> s) {
     this.sketchType = s.sketchType;
-    this.numberType = s.numberType;
     this.sketch = s.sketch;
     this.n = s.n;
-    this.sum = s.sum;
-    this.sumOfSquares = s.sumOfSquares;
+    copyScalarsFrom(s);
     this.sumOfLogs = s.sumOfLogs;
-    this.min = s.min;
-    this.max = s.max;
     this.M1 = s.M1;
     this.M2 = s.M2;
     this.M3 = s.M3;
@@ -101,6 +147,15 @@ public abstract class DistributionSketchImpl<T extends Number, S>
     return k;
   }
 
+  /**
+   * Change the k of an empty sketch, e.g. one about to take the result of a merge at a smaller k.
+   */
+  void setK(int k) {
+    this.k = k;
+    this.sketchType = createSketchType(k);
+    this.sketch = sketchType.createSketch();
+  }
+
   /**
    * Add a value. NOTE: This does not store the point, but only updates internal state. NOTE: This
    * is NOT threadsafe.
@@ -109,69 +164,223 @@ public abstract class DistributionSketchImpl<T extends Number, S>
    */
   @Override
   public void addValue(T value) {
+    addDouble(value.doubleValue());
+  }
+
+  @Override
+  public void addFloat(float value) {
+    addDouble(value);
+  }
+
+  /**
+   * Update the state shared by all of the number types: the count, the sum of logs, the moments and
+   * the underlying distributional sketch. Subclasses are expected to have already updated their
+   * primitive sum, sum of squares, min and max. NOTE: This is NOT threadsafe.
+   *
+   * @param value
+   */
+  protected final void updateMoments(double value) {
+    updateMoments(value, false);
+  }
+
+  /**
+   * As {@link #updateMoments(double)}, but when checked the new moments are first checked for
+   * overflow and nothing is updated if they have.
+   *
+   * @throws IllegalStateException if checked and a moment would overflow
+   */
+  protected final void updateMoments(double value, boolean checked) {
     long n1 = n;
-    min = min == null ? value : numberType.min(min, value);
-    max = max == null ? value : numberType.max(max, value);
-    sum = numberType.add(sum, value);
-    sumOfLogs += Math.log(value.doubleValue());
-    sumOfSquares = numberType.add(sumOfSquares, numberType.multiply(value, value));
-    sketchType.addValue(sketch, value);
-    n++;
+    long count = n + 1;
     double delta, delta_n, delta_n2, term1;
     // delta between the value and the mean
-    delta = value.doubleValue() - M1;
+    delta = value - M1;
     // (x - E[x])/n
-    delta_n = delta / n;
+    delta_n = delta / count;
     delta_n2 = delta_n * delta_n;
     term1 = delta * delta_n * n1;
 
     // Adjusting expected value: See Knuth TAOCP vol 2, 3rd edition, page 232
-    M1 += delta_n;
+    double m1 = M1 + delta_n;
     // Adjusting the \mu_i, see http://www.johndcook.com/blog/skewness_kurtosis/
-    M4 += term1 * delta_n2 * (n * n - 3 * n + 3) + 6 * delta_n2 * M2 - 4 * delta_n * M3;
-    M3 += term1 * delta_n * (n - 2) - 3 * delta_n * M2;
-    M2 += term1;
-    // checkFlowError(sumOfSquares, sum, sumOfSquares, M1, M2, M3, M4);
+    double m4 = M4 + term1 * delta_n2 * (count * count - 3 * count + 3) + 6 * delta_n2 * M2
+        - 4 * delta_n * M3;
+    double m3 = M3 + term1 * delta_n * (count - 2) - 3 * delta_n * M2;
+    double m2 = M2 + term1;
+    if (checked) {
+      checkFlowError(m1, m2, m3, m4);
+    }
+    sumOfLogs += Math.log(value);
+    sketch = sketchType.updatable(sketch);
+    sketchType.addDouble(sketch, value);
+    n = count;
+    M1 = m1;
+    M2 = m2;
+    M3 = m3;
+    M4 = m4;
   }
 
-  private void checkFlowError(double sumOfSquares, double sum, double... vals) {
-    // overflow
-    for (double val : vals) {
-      if (Double.isInfinite(val)) {
-        throw new IllegalStateException("Double overflow!");
-      }
-    }
-    // underflow. It is sufficient to check sumOfSquares because sumOfSquares is going to converge
-    // to 0 faster than sum
-    // in the situation where we're looking at an underflow.
-    if (sumOfSquares == 0.0 && sum > 0) {
-      throw new IllegalStateException("Double underflow!");
+  /**
+   * Add a block of values. Sketches override this with a tight loop over their own primitive type;
+   * by default it is a loop over {@link #addDouble(double)}.
+   */
+  @Override
+  public void addValues(double[] values, int off, int len) {
+    checkRange(values.length, off, len);
+    for (int i = off; i < off + len; ++i) {
+      addDouble(values[i]);
     }
   }
 
+  /**
+   * Add a block of values. Sketches override this with a tight loop over their own primitive type;
+   * by default it is a loop over {@link #addLong(long)}.
+   */
   @Override
-  public long getCount() {
-    return n;
+  public void addValues(long[] values, int off, int len) {
+    checkRange(values.length, off, len);
+    for (int i = off; i < off + len; ++i) {
+      addLong(values[i]);
+    }
   }
 
   @Override
-  public Optional<T> getMin() {
-    return Objects.equals(min, numberType.maxValue()) ? Optional.empty() : Optional.ofNullable(min);
+  public void addValues(DoubleBuffer values) {
+    if (values.hasArray()) {
+      addValues(values.array(), values.arrayOffset() + values.position(), values.remaining());
+      values.position(values.limit());
+    } else {
+      while (values.hasRemaining()) {
+        addDouble(values.get());
+      }
+    }
   }
 
   @Override
-  public Optional<T> getMax() {
-    return Objects.equals(max, numberType.minValue()) ? Optional.empty() : Optional.ofNullable(max);
+  public void addValues(LongBuffer values) {
+    if (values.hasArray()) {
+      addValues(values.array(), values.arrayOffset() + values.position(), values.remaining());
+      values.position(values.limit());
+    } else {
+      while (values.hasRemaining()) {
+        addLong(values.get());
+      }
+    }
+  }
+
+  protected static void checkRange(int length, int off, int len) {
+    if (off < 0 || len < 0 || off > length - len) {
+      throw new IndexOutOfBoundsException(
+          "Range [" + off + ", " + off + " + " + len + ") out of bounds for length " + length);
+    }
+  }
+
+  /**
+   * The batch equivalent of {@link #updateMoments(double)}. The moments are kept in locals for the
+   * duration of the loop and the result is identical to adding the values one at a time.
+   */
+  protected final void updateMoments(double[] values, int off, int len) {
+    updateMoments(values, off, len, false);
+  }
+
+  /**
+   * The batch equivalent of {@link #updateMoments(double, boolean)}: when checked and a moment
+   * would overflow, none of the block is added.
+   */
+  protected final void updateMoments(double[] values, int off, int len, boolean checked) {
+    long count = n;
+    double logs = sumOfLogs;
+    double m1 = M1, m2 = M2, m3 = M3, m4 = M4;
+    for (int i = off; i < off + len; ++i) {
+      double value = values[i];
+      long n1 = count;
+      logs += Math.log(value);
+      count++;
+      double delta = value - m1;
+      double delta_n = delta / count;
+      double delta_n2 = delta_n * delta_n;
+      double term1 = delta * delta_n * n1;
+      m1 += delta_n;
+      m4 += term1 * delta_n2 * (count * count - 3 * count + 3) + 6 * delta_n2 * m2
+          - 4 * delta_n * m3;
+      m3 += term1 * delta_n * (count - 2) - 3 * delta_n * m2;
+      m2 += term1;
+    }
+    if (checked) {
+      // an infinity is sticky, so once for the block is enough
+      checkFlowError(m1, m2, m3, m4);
+    }
+    sketch = sketchType.updatable(sketch);
+    sketchType.addDoubles(sketch, values, off, len);
+    n = count;
+    sumOfLogs = logs;
+    M1 = m1;
+    M2 = m2;
+    M3 = m3;
+    M4 = m4;
+  }
+
+  /**
+   * The batch equivalent of {@link #updateMoments(double)} for longs.
+   */
+  protected final void updateMoments(long[] values, int off, int len) {
+    long count = n;
+    double logs = sumOfLogs;
+    double m1 = M1, m2 = M2, m3 = M3, m4 = M4;
+    for (int i = off; i < off + len; ++i) {
+      double value = values[i];
+      long n1 = count;
+      logs += Math.log(value);
+      count++;
+      double delta = value - m1;
+      double delta_n = delta / count;
+      double delta_n2 = delta_n * delta_n;
+      double term1 = delta * delta_n * n1;
+      m1 += delta_n;
+      m4 += term1 * delta_n2 * (count * count - 3 * count + 3) + 6 * delta_n2 * m2
+          - 4 * delta_n * m3;
+      m3 += term1 * delta_n * (count - 2) - 3 * delta_n * m2;
+      m2 += term1;
+    }
+    sketch = sketchType.updatable(sketch);
+    sketchType.addLongs(sketch, values, off, len);
+    n = count;
+    sumOfLogs = logs;
+    M1 = m1;
+    M2 = m2;
+    M3 = m3;
+    M4 = m4;
+  }
+
+  /**
+   * Guard against the new sums or moments of an update having overflowed, before they are stored.
+   * This is a handful of comparisons, so sketches which opt in can afford it on every update. A
+   * sum of squares which has rounded to 0 is not an error: tiny values such as 1e-200 square to
+   * below the smallest double but their sum and mean are still meaningful.
+   *
+   * @throws IllegalStateException if they have
+   */
+  protected static void checkFlowError(double sum, double sumOfSquares) {
+    if (Double.isInfinite(sum) || Double.isInfinite(sumOfSquares)) {
+      throw new IllegalStateException("Double overflow!");
+    }
+  }
+
+  private static void checkFlowError(double m1, double m2, double m3, double m4) {
+    if (Double.isInfinite(m1) || Double.isInfinite(m2) || Double.isInfinite(m3)
+        || Double.isInfinite(m4)) {
+      throw new IllegalStateException("Double overflow!");
+    }
   }
 
   @Override
-  public double getMean() {
-    return getSum().doubleValue() / getCount();
+  public long getCount() {
+    return n;
   }
 
   @Override
-  public T getSum() {
-    return sum;
+  public double getMean() {
+    return getSum().doubleValue() / getCount();
   }
 
   @Override
@@ -196,7 +405,7 @@ public abstract class DistributionSketchImpl<T extends Number, S>
 
   @Override
   public double getQuadraticMean() {
-    return FastMath.sqrt(sumOfSquares.doubleValue() / n);
+    return FastMath.sqrt(getSumSquares().doubleValue() / n);
   }
 
   @Override
@@ -204,11 +413,6 @@ public abstract class DistributionSketchImpl<T extends Number, S>
     return sumOfLogs;
   }
 
-  @Override
-  public T getSumSquares() {
-    return sumOfSquares;
-  }
-
   /**
    * Unbiased kurtosis. See
    * http://commons.apache.org/proper/commons-math/apidocs/org/apache/commons/math4/stat/descriptive/moment/Kurtosis.html
@@ -249,25 +453,106 @@ public abstract class DistributionSketchImpl<T extends Number, S>
     return sketchType.getPercentile(sketch, p / 100.0);
   }
 
+  /**
+   * The percentiles are answered together from a single sorted view of the quantile sketch, rather
+   * than one search of the sketch per percentile. Nothing is remembered between calls. Querying a
+   * KLL sketch sorts part of it in place, so readers sharing a sketch must not query it at once.
+   */
+  @Override
+  public double[] getPercentiles(double[] ps) {
+    double[] fractions = new double[ps.length];
+    for (int i = 0; i < ps.length; ++i) {
+      fractions[i] = ps[i] / 100.0;
+    }
+    return sketchType.getPercentiles(sketch, fractions);
+  }
+
+  @Override
+  public double[] getCDF(double[] splitPoints) {
+    return sketchType.getCDF(sketch, splitPoints);
+  }
+
+  @Override
+  public double[] getPMF(double[] splitPoints) {
+    return sketchType.getPMF(sketch, splitPoints);
+  }
+
+  @Override
+  public double getRank(double value) {
+    return sketchType.getRank(sketch, value);
+  }
+
+  @Override
+  public double getNormalizedRankError() {
+    return sketchType.getNormalizedRankError(sketch);
+  }
 
+  @Override
+  public int getSerializedSizeBytes() {
+    return DistributionSketchFormat.getSerializedSizeBytes(this);
+  }
+
+  /**
+   * Empty the sketch in place, so that a flush can serialize it and hand it straight back to be
+   * written to without allocating a new one.
+   */
+  @Override
+  public void reset() {
+    sketch = sketchType.reset(sketch);
+    n = 0;
+    resetScalars();
+    sumOfLogs = 0;
+    M1 = M2 = M3 = M4 = 0;
+  }
+
+  /**
+   * Merge with another sketch, which need not have the same k or even the same type. Sketches of
+   * different k are merged at the smaller k; the quantile sketch with the larger k is downsampled
+   * as it goes through the union rather than copied first. Sketches of different types are merged
+   * into the {@link DistributionSketches#commonType(DistributionSketches, DistributionSketches)
+   * common type} of the two, e.g. a LONG and a FLOAT sketch merge into a FLOAT sketch, whose values
+   * are doubles; T is then a type of both, such as Number.
+   */
   @Override
   public DistributionSketch<T> merge(DistributionSketch<T> provider) {
-    DistributionSketchImpl<T, S> combined = createNew();
-    DistributionSketchImpl<T, S> a = this;
-    DistributionSketchImpl<T, S> b = (DistributionSketchImpl<T, S>) provider;
+    return DistributionSketchMerger.merge(this, provider);
+  }
 
-    // Combining the simple terms that obviously form a semigroup
-    combined.n = a.n + b.n;
-    combined.sum = numberType.add(a.sum, b.sum);
-    if (a.min != null && b.min != null) {
-      combined.min = numberType.min(a.min, b.min);
-      combined.max = numberType.max(a.max, b.max);
+  /**
+   * As {@link #combine(DistributionSketchImpl, DistributionSketchImpl)}, but a and b may be of
+   * other types than this sketch, in which case their scalars are combined through their boxed
+   * getters.
+   */
+  @SuppressWarnings("unchecked")
+  void combineAny(DistributionSketchImpl<?, ?> a, DistributionSketchImpl<?, ?> b) {
+    if (a.getClass() == getClass() && b.getClass() == getClass()) {
+      combine((DistributionSketchImpl<T, S>) a, (DistributionSketchImpl<T, S>) b);
     } else {
-      combined.min = a.min;
-      combined.max = a.max;
+      combineScalars(a, b);
+      combineMoments(a, b);
+    }
+  }
+
+  /**
+   * Set the count, scalars and moments of this sketch to those of a and b combined. This sketch may
+   * itself be a, which is how {@link DistributionSketchMerger} accumulates in place, so everything
+   * is read from a and b before anything is written. The distributional sketch is left alone.
+   */
+  void combine(DistributionSketchImpl<T, S> a, DistributionSketchImpl<T, S> b) {
+    // Combining the simple terms that obviously form a semigroup
+    a.mergeScalars(b, this);
+    combineMoments(a, b);
+  }
+
+  private void combineMoments(DistributionSketchImpl<?, ?> a, DistributionSketchImpl<?, ?> b) {
+    long combinedN = a.n + b.n;
+    double combinedSumOfLogs = a.sumOfLogs + b.sumOfLogs;
+    if (combinedN == 0) {
+      n = 0;
+      sumOfLogs = combinedSumOfLogs;
+      M1 = M2 = M3 = M4 = 0;
+      return;
     }
-    combined.sumOfSquares = numberType.add(a.sumOfSquares, b.sumOfSquares);
-    combined.sumOfLogs = a.sumOfLogs + b.sumOfLogs;
 
     // Adjusting the standardized moments, see http://www.johndcook.com/blog/skewness_kurtosis/
     double delta = b.M1 - a.M1;
@@ -275,23 +560,24 @@ public abstract class DistributionSketchImpl<T extends Number, S>
     double delta3 = delta * delta2;
     double delta4 = delta2 * delta2;
 
-    combined.M1 = (a.n * a.M1 + b.n * b.M1) / combined.n;
+    double m1 = (a.n * a.M1 + b.n * b.M1) / combinedN;
 
-    combined.M2 = a.M2 + b.M2 + delta2 * a.n * b.n / combined.n;
+    double m2 = a.M2 + b.M2 + delta2 * a.n * b.n / combinedN;
 
-    combined.M3 = a.M3 + b.M3 + delta3 * a.n * b.n * (a.n - b.n) / (combined.n * combined.n);
-    combined.M3 += 3.0 * delta * (a.n * b.M2 - b.n * a.M2) / combined.n;
+    double m3 = a.M3 + b.M3 + delta3 * a.n * b.n * (a.n - b.n) / (combinedN * combinedN);
+    m3 += 3.0 * delta * (a.n * b.M2 - b.n * a.M2) / combinedN;
 
-    combined.M4 = a.M4 + b.M4 + delta4 * a.n * b.n * (a.n * a.n - a.n * b.n + b.n * b.n)
-        / (combined.n * combined.n * combined.n);
-    combined.M4 += 6.0 * delta2 * (a.n * a.n * b.M2 + b.n * b.n * a.M2) / (combined.n * combined.n)
-        + 4.0 * delta * (a.n * b.M3 - b.n * a.M3) / combined.n;
+    double m4 = a.M4 + b.M4 + delta4 * a.n * b.n * (a.n * a.n - a.n * b.n + b.n * b.n)
+        / (combinedN * combinedN * combinedN);
+    m4 += 6.0 * delta2 * (a.n * a.n * b.M2 + b.n * b.n * a.M2) / (combinedN * combinedN)
+        + 4.0 * delta * (a.n * b.M3 - b.n * a.M3) / combinedN;
 
-    // Merging the distributional sketches
-    combined.sketch = sketchType.merge(a.sketch, b.sketch);
-    // checkFlowError(combined.sumOfSquares, sum, combined.sumOfSquares, combined.M1, combined.M2,
-    // combined.M3, combined.M4);
-    return combined;
+    n = combinedN;
+    sumOfLogs = combinedSumOfLogs;
+    M1 = m1;
+    M2 = m2;
+    M3 = m3;
+    M4 = m4;
   }
 
   @Override
@@ -299,11 +585,9 @@ public abstract class DistributionSketchImpl<T extends Number, S>
     output.writeInt(k);
     sketchType.serialize(sketch, output);
     output.writeLong(n);
-    numberType.serialize(sum, output);
-    numberType.serialize(sumOfSquares, output);
+    writeSums(output);
     output.writeDouble(sumOfLogs);
-    numberType.serialize(min, output);
-    numberType.serialize(max, output);
+    writeExtrema(output);
     output.writeDouble(M1);
     output.writeDouble(M2);
     output.writeDouble(M3);
@@ -329,14 +613,11 @@ public abstract class DistributionSketchImpl<T extends Number, S>
   public void read(Kryo kryo, Input input) {
     k = input.readInt();
     sketchType = createSketchType(k);
-    numberType = createNumberType();
     sketch = sketchType.materialize(input);
     n = input.readLong();
-    sum = numberType.materialize(input);
-    sumOfSquares = numberType.materialize(input);
+    readSums(input);
     sumOfLogs = input.readDouble();
-    min = numberType.materialize(input);
-    max = numberType.materialize(input);
+    readExtrema(input);
     M1 = input.readDouble();
     M2 = input.readDouble();
     M3 = input.readDouble();
@@ -345,9 +626,9 @@ public abstract class DistributionSketchImpl<T extends Number, S>
 
   @Override
   public String toString() {
-    return "DistributionSketchImpl{" + "sketch=" + sketch + ", n=" + n + ", sum=" + sum
-        + ", sumOfSquares=" + sumOfSquares + ", sumOfLogs=" + sumOfLogs + ", min=" + min + ", max="
-        + max + ", M1=" + M1 + ", M2=" + M2 + ", M3=" + M3 + ", M4=" + M4 + ", k=" + k + '}';
+    return "DistributionSketchImpl{" + "sketch=" + sketch + ", n=" + n + ", sum=" + getSum()
+        + ", sumOfSquares=" + getSumSquares() + ", sumOfLogs=" + sumOfLogs + ", min=" + getMin()
+        + ", max=" + getMax() + ", M1=" + M1 + ", M2=" + M2 + ", M3=" + M3 + ", M4=" + M4 + ", k=" + k + '}';
   }
 
   @Override
@@ -362,12 +643,14 @@ public abstract class DistributionSketchImpl<T extends Number, S>
     return n == that.n && Double.compare(that.sumOfLogs, sumOfLogs) == 0
         && Double.compare(that.M1, M1) == 0 && Double.compare(that.M2, M2) == 0
         && Double.compare(that.M3, M3) == 0 && Double.compare(that.M4, M4) == 0 && k == that.k
-        && Objects.equals(sum, that.sum) && Objects.equals(sumOfSquares, that.sumOfSquares)
-        && Objects.equals(min, that.min) && Objects.equals(max, that.max);
+        && Objects.equals(getSum(), that.getSum())
+        && Objects.equals(getSumSquares(), that.getSumSquares())
+        && Objects.equals(getMin(), that.getMin()) && Objects.equals(getMax(), that.getMax());
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(n, sum, sumOfSquares, sumOfLogs, min, max, M1, M2, M3, M4, k);
+    return Objects.hash(n, getSum(), getSumSquares(), sumOfLogs, getMin(), getMax(), M1, M2, M3,
+        M4, k);
   }
 }
@@ -0,0 +1,166 @@
+package com.caseystella.sketchy.sketches.statistics.distribution.sketchimpl;
+
+import com.caseystella.sketchy.sketches.statistics.distribution.ConcurrentDistributionSketch;
+import com.caseystella.sketchy.sketches.statistics.distribution.DistributionSketch;
+import com.caseystella.sketchy.sketches.statistics.distribution.DistributionSketches;
+import com.caseystella.sketchy.sketches.statistics.distribution.WindowedDistributionSketch;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Merges many distribution sketches at once. Within a run of sketches the moments are accumulated
+ * in place and the quantile sketches go through a single union, rather than allocating a new
+ * sketch and union for each pairwise {@link DistributionSketch#merge(DistributionSketch)}. Large
+ * inputs are split into runs which are merged in parallel on the common fork/join pool and then
+ * combined as a tree.
+ *
+ * <p>
+ * The sketches need not share a k or a type. The result has the smallest k of any of them and the
+ * {@link DistributionSketches#commonType(DistributionSketches, DistributionSketches) common type}
+ * of all of them, or is a MOMENTS sketch when the quantiles are dropped with
+ * {@link #mergeMoments(Collection)}.
+ */
+public class DistributionSketchMerger {
+  /**
+   * Inputs smaller than this are merged on the calling thread.
+   */
+  public static final int PARALLEL_THRESHOLD = 256;
+
+  private DistributionSketchMerger() {
+    // do not instantiate
+  }
+
+  public static <T extends Number> DistributionSketch<T> mergeAll(
+      Collection<? extends DistributionSketch<T>> sketches) {
+    return mergeAll(sketches, null);
+  }
+
+  /**
+   * Merge only the moments of sketches of any types, into a MOMENTS sketch.
+   */
+  @SuppressWarnings("unchecked")
+  public static DistributionSketch<Double> mergeMoments(
+      Collection<? extends DistributionSketch<?>> sketches) {
+    // the scalars of each sketch are combined through their boxed values, so T is never relied on
+    return mergeAll((Collection<DistributionSketch<Double>>) sketches,
+        DistributionSketches.MOMENTS);
+  }
+
+  /**
+   * @param type The type of the result, or null for the common type of the sketches.
+   */
+  private static <T extends Number> DistributionSketch<T> mergeAll(
+      Collection<? extends DistributionSketch<T>> sketches, DistributionSketches type) {
+    if (sketches.isEmpty()) {
+      throw new IllegalArgumentException("Unable to merge an empty collection of sketches.");
+    }
+    List<DistributionSketchImpl<T, Object>> impls = new ArrayList<>(sketches.size());
+    for (DistributionSketch<T> sketch : sketches) {
+      impls.add(toImpl(sketch));
+    }
+    if (impls.size() < PARALLEL_THRESHOLD) {
+      return mergeRun(impls, type);
+    }
+    return ForkJoinPool.commonPool().invoke(new MergeTask<>(impls, type));
+  }
+
+  /**
+   * Merge two sketches of any type and k. See
+   * {@link DistributionSketchImpl#merge(DistributionSketch)}.
+   */
+  static <T extends Number> DistributionSketchImpl<T, Object> merge(DistributionSketchImpl<T, ?> a,
+      DistributionSketch<T> other) {
+    DistributionSketchImpl<T, Object> b = toImpl(other);
+    DistributionSketchImpl<T, Object> ret = createTarget(a,
+        DistributionSketches.commonType(a.getType(), b.getType()), Math.min(a.getK(), b.getK()));
+    ret.combineAny(a, b);
+    // Merging the distributional sketches, downsampling to the target's k as they go
+    ret.sketch = ret.sketchType.merge(a.sketch, b.sketch);
+    return ret;
+  }
+
+  /**
+   * An empty sketch to merge into, of the same class as the first sketch where that is the type
+   * asked for.
+   */
+  @SuppressWarnings("unchecked")
+  private static <T extends Number> DistributionSketchImpl<T, Object> createTarget(
+      DistributionSketchImpl<T, ?> first, DistributionSketches type, int k) {
+    if (first.getType() != type) {
+      return (DistributionSketchImpl<T, Object>) type.<T>create(k, null);
+    }
+    DistributionSketchImpl<T, Object> ret = (DistributionSketchImpl<T, Object>) first.createNew();
+    if (ret.getK() != k) {
+      ret.setK(k);
+    }
+    return ret;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T extends Number> DistributionSketchImpl<T, Object> toImpl(
+      DistributionSketch<T> sketch) {
+    DistributionSketch<T> s = sketch;
+    if (sketch instanceof ConcurrentDistributionSketch) {
+      s = ((ConcurrentDistributionSketch<T>) sketch).snapshot();
+    } else if (sketch instanceof WindowedDistributionSketch) {
+      s = ((WindowedDistributionSketch<T>) sketch).snapshot();
+    }
+    return (DistributionSketchImpl<T, Object>) s;
+  }
+
+  /**
+   * Merge a run of sketches sequentially with one accumulator and one union.
+   *
+   * @param type The type of the result, or null for the common type of the sketches.
+   */
+  private static <T extends Number> DistributionSketchImpl<T, Object> mergeRun(
+      List<DistributionSketchImpl<T, Object>> sketches, DistributionSketches type) {
+    DistributionSketchImpl<T, Object> first = sketches.get(0);
+    DistributionSketches common = type == null ? first.getType() : type;
+    int k = first.getK();
+    for (DistributionSketchImpl<T, Object> s : sketches) {
+      if (type == null) {
+        common = DistributionSketches.commonType(common, s.getType());
+      }
+      k = Math.min(k, s.getK());
+    }
+    DistributionSketchImpl<T, Object> ret = createTarget(first, common, k);
+    List<Object> quantileSketches = new ArrayList<>(sketches.size());
+    for (DistributionSketchImpl<T, Object> s : sketches) {
+      ret.combineAny(ret, s);
+      quantileSketches.add(s.sketch);
+    }
+    ret.sketch = ret.sketchType.mergeAll(quantileSketches);
+    return ret;
+  }
+
+  private static class MergeTask<T extends Number>
+      extends RecursiveTask<DistributionSketchImpl<T, Object>> {
+    private static final long serialVersionUID = 1L;
+    private final List<DistributionSketchImpl<T, Object>> sketches;
+    private final DistributionSketches type;
+
+    MergeTask(List<DistributionSketchImpl<T, Object>> sketches, DistributionSketches type) {
+      this.sketches = sketches;
+      this.type = type;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected DistributionSketchImpl<T, Object> compute() {
+      if (sketches.size() < PARALLEL_THRESHOLD) {
+        return mergeRun(sketches, type);
+      }
+      int mid = sketches.size() / 2;
+      MergeTask<T> left = new MergeTask<>(sketches.subList(0, mid), type);
+      MergeTask<T> right = new MergeTask<>(sketches.subList(mid, sketches.size()), type);
+      left.fork();
+      DistributionSketchImpl<T, Object> r = right.compute();
+      DistributionSketchImpl<T, Object> l = left.join();
+      return (DistributionSketchImpl<T, Object>) l.merge(r);
+    }
+  }
+}
@@ -1,12 +1,11 @@
 package com.caseystella.sketchy.sketches.statistics.distribution.sketchimpl;
 
-import com.caseystella.sketchy.sketches.statistics.distribution.types.number.NumberType;
+import com.caseystella.sketchy.sketches.statistics.distribution.DistributionSketches;
 import com.caseystella.sketchy.sketches.statistics.distribution.types.sketch.SketchType;
 import com.caseystella.sketchy.sketches.statistics.distribution.types.sketch.SketchTypes;
-import com.caseystella.sketchy.sketches.statistics.distribution.types.number.NumberTypes;
 import org.apache.datasketches.quantiles.DoublesSketch;
 
-public class DoubleDistributionSketch extends DistributionSketchImpl<Double, DoublesSketch> {
+public class DoubleDistributionSketch extends AbstractDoubleDistributionSketch<DoublesSketch> {
   public DoubleDistributionSketch() {
     super();
   }
@@ -15,9 +14,13 @@ public class DoubleDistributionSketch extends DistributionSketchImpl<Double, Dou
     super(k);
   }
 
+  protected DoubleDistributionSketch(int k, boolean compensated) {
+    super(k, compensated);
+  }
+
   @Override
-  protected NumberType<Double> createNumberType() {
-    return NumberTypes.DOUBLE.get();
+  public DistributionSketches getType() {
+    return DistributionSketches.DOUBLES;
   }
 
   @Override
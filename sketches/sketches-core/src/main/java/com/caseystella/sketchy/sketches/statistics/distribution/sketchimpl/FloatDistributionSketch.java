@@ -1,12 +1,11 @@
 package com.caseystella.sketchy.sketches.statistics.distribution.sketchimpl;
 
-import com.caseystella.sketchy.sketches.statistics.distribution.types.number.NumberType;
+import com.caseystella.sketchy.sketches.statistics.distribution.DistributionSketches;
 import com.caseystella.sketchy.sketches.statistics.distribution.types.sketch.SketchType;
 import com.caseystella.sketchy.sketches.statistics.distribution.types.sketch.SketchTypes;
-import com.caseystella.sketchy.sketches.statistics.distribution.types.number.NumberTypes;
 import org.apache.datasketches.kll.KllFloatsSketch;
 
-public class FloatDistributionSketch extends DistributionSketchImpl<Double, KllFloatsSketch> {
+public class FloatDistributionSketch extends AbstractDoubleDistributionSketch<KllFloatsSketch> {
 
   public FloatDistributionSketch() {
     super();
@@ -16,9 +15,13 @@ public class FloatDistributionSketch extends DistributionSketchImpl<Double, KllF
     super(k);
   }
 
+  protected FloatDistributionSketch(int k, boolean compensated) {
+    super(k, compensated);
+  }
+
   @Override
-  protected NumberType<Double> createNumberType() {
-    return NumberTypes.DOUBLE.get();
+  public DistributionSketches getType() {
+    return DistributionSketches.FLOAT;
   }
 
   @Override
@@ -1,12 +1,26 @@
 package com.caseystella.sketchy.sketches.statistics.distribution.sketchimpl;
 
-import com.caseystella.sketchy.sketches.statistics.distribution.types.number.NumberType;
+import com.caseystella.sketchy.sketches.statistics.distribution.DistributionSketches;
 import com.caseystella.sketchy.sketches.statistics.distribution.types.sketch.SketchType;
 import com.caseystella.sketchy.sketches.statistics.distribution.types.sketch.SketchTypes;
-import com.caseystella.sketchy.sketches.statistics.distribution.types.number.NumberTypes;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import java.nio.ByteBuffer;
+import java.util.Optional;
 import org.apache.datasketches.kll.KllFloatsSketch;
 
+/**
+ * A distribution sketch over longs. The sum, sum of squares, min and max are kept as primitive
+ * longs so that adding a value allocates nothing. The serialized form is the same as the one
+ * written by {@link com.caseystella.sketchy.sketches.statistics.distribution.types.number.LongType}.
+ */
 public class LongDistributionSketch extends DistributionSketchImpl<Long, KllFloatsSketch> {
+  private static final long serialVersionUID = 1L;
+  protected long sum = 0;
+  protected long sumOfSquares = 0;
+  protected long min = Long.MAX_VALUE;
+  protected long max = Long.MIN_VALUE;
+
   public LongDistributionSketch() {
     super();
   }
@@ -16,8 +30,8 @@ public class LongDistributionSketch extends DistributionSketchImpl<Long, KllFloa
   }
 
   @Override
-  protected NumberType<Long> createNumberType() {
-    return NumberTypes.LONG.get();
+  public DistributionSketches getType() {
+    return DistributionSketches.LONG;
   }
 
   @Override
@@ -29,5 +43,136 @@ public class LongDistributionSketch extends DistributionSketchImpl<Long, KllFloa
   protected DistributionSketchImpl<Long, KllFloatsSketch> createNew() {
     return new LongDistributionSketch(getK());
   }
-}
 
+  @Override
+  public void addValue(Long value) {
+    addLong(value);
+  }
+
+  @Override
+  public void addLong(long value) {
+    min = Math.min(min, value);
+    max = Math.max(max, value);
+    sum += value;
+    sumOfSquares += value * value;
+    updateMoments(value);
+  }
+
+  @Override
+  public void addDouble(double value) {
+    addLong((long) value);
+  }
+
+  @Override
+  public void addValues(long[] values, int off, int len) {
+    checkRange(values.length, off, len);
+    long s = sum, ss = sumOfSquares, lo = min, hi = max;
+    for (int i = off; i < off + len; ++i) {
+      long value = values[i];
+      lo = Math.min(lo, value);
+      hi = Math.max(hi, value);
+      s += value;
+      ss += value * value;
+    }
+    sum = s;
+    sumOfSquares = ss;
+    min = lo;
+    max = hi;
+    updateMoments(values, off, len);
+  }
+
+  @Override
+  public Optional<Long> getMin() {
+    return min == Long.MAX_VALUE ? Optional.empty() : Optional.of(min);
+  }
+
+  @Override
+  public Optional<Long> getMax() {
+    return max == Long.MIN_VALUE ? Optional.empty() : Optional.of(max);
+  }
+
+  @Override
+  public Long getSum() {
+    return sum;
+  }
+
+  @Override
+  public Long getSumSquares() {
+    return sumOfSquares;
+  }
+
+  @Override
+  protected void mergeScalars(DistributionSketchImpl<Long, KllFloatsSketch> other,
+      DistributionSketchImpl<Long, KllFloatsSketch> combined) {
+    LongDistributionSketch b = (LongDistributionSketch) other;
+    LongDistributionSketch c = (LongDistributionSketch) combined;
+    c.sum = sum + b.sum;
+    c.sumOfSquares = sumOfSquares + b.sumOfSquares;
+    c.min = Math.min(min, b.min);
+    c.max = Math.max(max, b.max);
+  }
+
+  @Override
+  protected void copyScalarsFrom(DistributionSketchImpl<Long, KllFloatsSketch> s) {
+    LongDistributionSketch other = (LongDistributionSketch) s;
+    this.sum = other.sum;
+    this.sumOfSquares = other.sumOfSquares;
+    this.min = other.min;
+    this.max = other.max;
+  }
+
+  @Override
+  protected void resetScalars() {
+    sum = 0;
+    sumOfSquares = 0;
+    min = Long.MAX_VALUE;
+    max = Long.MIN_VALUE;
+  }
+
+  @Override
+  protected boolean isIntegral() {
+    return true;
+  }
+
+  @Override
+  protected void writeScalars(ByteBuffer buf, int start) {
+    DistributionSketchFormat.putLong(buf, start + DistributionSketchFormat.SUM_OFFSET, sum);
+    DistributionSketchFormat.putLong(buf, start + DistributionSketchFormat.SUM_OF_SQUARES_OFFSET,
+        sumOfSquares);
+    DistributionSketchFormat.putLong(buf, start + DistributionSketchFormat.MIN_OFFSET, min);
+    DistributionSketchFormat.putLong(buf, start + DistributionSketchFormat.MAX_OFFSET, max);
+  }
+
+  @Override
+  protected void readScalars(ByteBuffer buf, int start) {
+    sum = DistributionSketchFormat.getLong(buf, start + DistributionSketchFormat.SUM_OFFSET);
+    sumOfSquares = DistributionSketchFormat.getLong(buf,
+        start + DistributionSketchFormat.SUM_OF_SQUARES_OFFSET);
+    min = DistributionSketchFormat.getLong(buf, start + DistributionSketchFormat.MIN_OFFSET);
+    max = DistributionSketchFormat.getLong(buf, start + DistributionSketchFormat.MAX_OFFSET);
+  }
+
+  @Override
+  protected void writeSums(Output output) {
+    output.writeLong(sum);
+    output.writeLong(sumOfSquares);
+  }
+
+  @Override
+  protected void readSums(Input input) {
+    sum = input.readLong();
+    sumOfSquares = input.readLong();
+  }
+
+  @Override
+  protected void writeExtrema(Output output) {
+    output.writeLong(min);
+    output.writeLong(max);
+  }
+
+  @Override
+  protected void readExtrema(Input input) {
+    min = input.readLong();
+    max = input.readLong();
+  }
+}
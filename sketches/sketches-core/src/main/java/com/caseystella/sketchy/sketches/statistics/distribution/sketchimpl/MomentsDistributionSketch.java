@@ -0,0 +1,36 @@
+package com.caseystella.sketchy.sketches.statistics.distribution.sketchimpl;
+
+import com.caseystella.sketchy.sketches.statistics.distribution.DistributionSketches;
+import com.caseystella.sketchy.sketches.statistics.distribution.types.sketch.SketchType;
+import com.caseystella.sketchy.sketches.statistics.distribution.types.sketch.SketchTypes;
+
+/**
+ * A distribution sketch of doubles which keeps only the count, sums, extrema and moments, in well
+ * under 100 bytes once serialized. It has no quantile sketch, so the percentile, CDF, PMF and rank
+ * queries throw {@link UnsupportedOperationException}.
+ */
+public class MomentsDistributionSketch extends AbstractDoubleDistributionSketch<Object> {
+
+  public MomentsDistributionSketch() {
+    super();
+  }
+
+  public MomentsDistributionSketch(int k) {
+    super(k);
+  }
+
+  @Override
+  public DistributionSketches getType() {
+    return DistributionSketches.MOMENTS;
+  }
+
+  @Override
+  protected SketchType<Object> createSketchType(int k) {
+    return SketchTypes.MOMENTS_ONLY.create(k);
+  }
+
+  @Override
+  protected DistributionSketchImpl<Double, Object> createNew() {
+    return new MomentsDistributionSketch(getK());
+  }
+}
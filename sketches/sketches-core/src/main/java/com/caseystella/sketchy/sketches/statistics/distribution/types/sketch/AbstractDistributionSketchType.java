@@ -2,6 +2,8 @@ package com.caseystella.sketchy.sketches.statistics.distribution.types.sketch;
 
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
+import java.util.Arrays;
+import org.apache.datasketches.memory.Memory;
 
 public abstract class AbstractDistributionSketchType<S> implements SketchType<S> {
   protected int k;
@@ -12,7 +14,18 @@ public abstract class AbstractDistributionSketchType<S> implements SketchType<S>
 
   protected abstract byte[] toByteArray(S v);
 
-  protected abstract S heapify(byte[] heap);
+  @Override
+  public S reset(S sketch) {
+    return createSketch();
+  }
+
+  @Override
+  public abstract S heapify(Memory mem);
+
+  @Override
+  public void addValue(S sketch, Number value) {
+    addDouble(sketch, value.doubleValue());
+  }
 
   @Override
   public void serialize(S v, Output output) {
@@ -24,7 +37,19 @@ public abstract class AbstractDistributionSketchType<S> implements SketchType<S>
   @Override
   public S materialize(Input input) {
     int len = input.readInt();
-    byte[] bytes = input.readBytes(len);
-    return heapify(bytes);
+    if (input.limit() - input.position() >= len) {
+      // The sketch is already in the input's buffer, so heapify it from there rather than copying it
+      // out first.
+      S ret = heapify(Memory.wrap(input.getBuffer()).region(input.position(), len));
+      input.setPosition(input.position() + len);
+      return ret;
+    }
+    return heapify(Memory.wrap(input.readBytes(len)));
+  }
+
+  protected static double[] nans(int length) {
+    double[] ret = new double[length];
+    Arrays.fill(ret, Double.NaN);
+    return ret;
   }
 }
@@ -1,6 +1,7 @@
 package com.caseystella.sketchy.sketches.statistics.distribution.types.sketch;
 
 import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.WritableMemory;
 import org.apache.datasketches.quantiles.*;
 
 public class DoublesSketchType extends AbstractDistributionSketchType<DoublesSketch> {
@@ -14,9 +15,48 @@ public class DoublesSketchType extends AbstractDistributionSketchType<DoublesSke
     return v.toByteArray(true);
   }
 
+  /**
+   * The serialized form is compact, but it is heapified straight into an updatable sketch, which
+   * reads the compact form without an intermediate copy. A sketch read back from Kryo or the binary
+   * format can then be added to, and reset in place, like any other.
+   */
   @Override
-  protected DoublesSketch heapify(byte[] heap) {
-    return CompactDoublesSketch.heapify(Memory.wrap(heap));
+  public DoublesSketch heapify(Memory mem) {
+    return UpdateDoublesSketch.heapify(mem);
+  }
+
+  /**
+   * @return The sketch if it can be updated, otherwise an exact copy of it which can be.
+   */
+  @Override
+  public UpdateDoublesSketch updatable(DoublesSketch sketch) {
+    if (sketch instanceof UpdateDoublesSketch) {
+      return (UpdateDoublesSketch) sketch;
+    }
+    // a union of a single sketch no larger than its max k is a copy of it
+    DoublesUnion union = DoublesUnion.builder().setMaxK(sketch.getK()).build();
+    union.update(sketch);
+    return union.getResult();
+  }
+
+  @Override
+  public int getSerializedSizeBytes(DoublesSketch v) {
+    return v.getCompactStorageBytes();
+  }
+
+  @Override
+  public void serialize(DoublesSketch v, WritableMemory mem) {
+    v.putMemory(mem, true);
+  }
+
+  /**
+   * Wrap a compact sketch in place. The result answers quantile queries straight from the memory
+   * but cannot be updated, so it is copied by {@link #updatable(DoublesSketch)} before the first
+   * add.
+   */
+  @Override
+  public DoublesSketch wrap(Memory mem) {
+    return DoublesSketch.wrap(mem);
   }
 
   @Override
@@ -24,21 +64,104 @@ public class DoublesSketchType extends AbstractDistributionSketchType<DoublesSke
     return new DoublesSketchBuilder().setK(k).build();
   }
 
+  /**
+   * Updatable sketches of this k are reset in place. Those which are compact, wrapped or of another
+   * k after a merge are replaced.
+   */
   @Override
-  public void addValue(DoublesSketch sketch, Number value) {
-    ((UpdateDoublesSketch) sketch).update(value.doubleValue());
+  public DoublesSketch reset(DoublesSketch sketch) {
+    if (sketch instanceof UpdateDoublesSketch && sketch.getK() == k) {
+      ((UpdateDoublesSketch) sketch).reset();
+      return sketch;
+    }
+    return createSketch();
+  }
+
+  @Override
+  public void addDouble(DoublesSketch sketch, double value) {
+    ((UpdateDoublesSketch) sketch).update(value);
+  }
+
+  @Override
+  public void addDoubles(DoublesSketch sketch, double[] values, int off, int len) {
+    UpdateDoublesSketch s = (UpdateDoublesSketch) sketch;
+    for (int i = off; i < off + len; ++i) {
+      s.update(values[i]);
+    }
+  }
+
+  @Override
+  public void addLongs(DoublesSketch sketch, long[] values, int off, int len) {
+    UpdateDoublesSketch s = (UpdateDoublesSketch) sketch;
+    for (int i = off; i < off + len; ++i) {
+      s.update(values[i]);
+    }
   }
 
   @Override
   public DoublesSketch merge(DoublesSketch s1, DoublesSketch s2) {
-    DoublesUnion builder = DoublesUnion.builder().setMaxK(Math.max(s1.getK(), s2.getK())).build();
+    // the union downsamples any sketch of a larger k as it is added, so nothing is copied first
+    DoublesUnion builder = DoublesUnion.builder().setMaxK(k).build();
     builder.update(s1);
     builder.update(s2);
     return builder.getResult();
   }
 
+  @Override
+  public DoublesSketch mergeAll(Iterable<DoublesSketch> sketches) {
+    DoublesUnion union = DoublesUnion.builder().setMaxK(k).build();
+    for (DoublesSketch s : sketches) {
+      union.update(s);
+    }
+    return union.getResult();
+  }
+
+  @Override
+  public double getNormalizedRankError() {
+    return DoublesSketch.getNormalizedRankError(k, false);
+  }
+
+  @Override
+  public double getNormalizedRankError(DoublesSketch sketch) {
+    return sketch.getNormalizedRankError(false);
+  }
+
+  @Override
+  public int getMaxSerializedSizeBytes(long n) {
+    return DoublesSketch.getCompactStorageBytes(k, n);
+  }
+
   @Override
   public double getPercentile(DoublesSketch sketch, double pctile) {
     return sketch.getQuantile(pctile);
   }
+
+  @Override
+  public double[] getPercentiles(DoublesSketch sketch, double[] pctiles) {
+    if (sketch.isEmpty()) {
+      return nans(pctiles.length);
+    }
+    return sketch.getQuantiles(pctiles);
+  }
+
+  @Override
+  public double[] getCDF(DoublesSketch sketch, double[] splitPoints) {
+    if (sketch.isEmpty()) {
+      return nans(splitPoints.length + 1);
+    }
+    return sketch.getCDF(splitPoints);
+  }
+
+  @Override
+  public double[] getPMF(DoublesSketch sketch, double[] splitPoints) {
+    if (sketch.isEmpty()) {
+      return nans(splitPoints.length + 1);
+    }
+    return sketch.getPMF(splitPoints);
+  }
+
+  @Override
+  public double getRank(DoublesSketch sketch, double value) {
+    return getCDF(sketch, new double[] {value})[0];
+  }
 }
@@ -4,6 +4,7 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import org.apache.datasketches.kll.KllFloatsSketch;
 import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.WritableMemory;
 
 public class FloatsSketchType extends AbstractDistributionSketchType<KllFloatsSketch> {
   public FloatsSketchType(int k) {
@@ -16,8 +17,28 @@ public class FloatsSketchType extends AbstractDistributionSketchType<KllFloatsSk
   }
 
   @Override
-  protected KllFloatsSketch heapify(byte[] heap) {
-    return KllFloatsSketch.heapify(Memory.wrap(heap));
+  public KllFloatsSketch heapify(Memory mem) {
+    return KllFloatsSketch.heapify(mem);
+  }
+
+  @Override
+  public int getSerializedSizeBytes(KllFloatsSketch v) {
+    return v.getSerializedSizeBytes();
+  }
+
+  @Override
+  public void serialize(KllFloatsSketch v, WritableMemory mem) {
+    byte[] bytes = v.toByteArray();
+    mem.putByteArray(0, bytes, 0, bytes.length);
+  }
+
+  /**
+   * This version of the KLL sketch has no direct (wrapped) form, so it is heapified straight from
+   * the memory without an intermediate byte array.
+   */
+  @Override
+  public KllFloatsSketch wrap(Memory mem) {
+    return KllFloatsSketch.heapify(mem);
   }
 
   @Override
@@ -25,24 +46,114 @@ public class FloatsSketchType extends AbstractDistributionSketchType<KllFloatsSk
     return new KllFloatsSketch(k);
   }
 
+  /**
+   * This version of the KLL sketch cannot be reset in place, so a new one is created.
+   */
   @Override
-  public void addValue(KllFloatsSketch sketch, Number value) {
-    sketch.update(value.floatValue());
+  public KllFloatsSketch reset(KllFloatsSketch sketch) {
+    return createSketch();
+  }
+
+  @Override
+  public void addDouble(KllFloatsSketch sketch, double value) {
+    sketch.update((float) value);
+  }
+
+  @Override
+  public void addDoubles(KllFloatsSketch sketch, double[] values, int off, int len) {
+    for (int i = off; i < off + len; ++i) {
+      sketch.update((float) values[i]);
+    }
+  }
+
+  @Override
+  public void addLongs(KllFloatsSketch sketch, long[] values, int off, int len) {
+    for (int i = off; i < off + len; ++i) {
+      sketch.update((float) values[i]);
+    }
   }
 
   @Override
   public KllFloatsSketch merge(KllFloatsSketch s1, KllFloatsSketch s2) {
-    KllFloatsSketch s = new KllFloatsSketch(Math.max(s1.getK(), s2.getK()));
+    // sketches of a larger k are compacted down to this one's as they are merged in
+    KllFloatsSketch s = new KllFloatsSketch(k);
     s.merge(s1);
     s.merge(s2);
     return s;
   }
 
+  @Override
+  public KllFloatsSketch mergeAll(Iterable<KllFloatsSketch> sketches) {
+    KllFloatsSketch ret = new KllFloatsSketch(k);
+    for (KllFloatsSketch s : sketches) {
+      ret.merge(s);
+    }
+    return ret;
+  }
+
+  @Override
+  public double getNormalizedRankError() {
+    return KllFloatsSketch.getNormalizedRankError(k, false);
+  }
 
+  @Override
+  public double getNormalizedRankError(KllFloatsSketch sketch) {
+    return sketch.getNormalizedRankError(false);
+  }
+
+  @Override
+  public int getMaxSerializedSizeBytes(long n) {
+    return KllFloatsSketch.getMaxSerializedSizeBytes(k, n);
+  }
 
   @Override
   public double getPercentile(KllFloatsSketch sketch, double pctile) {
     return sketch.getQuantile(pctile);
   }
 
+  @Override
+  public double[] getPercentiles(KllFloatsSketch sketch, double[] pctiles) {
+    if (sketch.isEmpty()) {
+      return nans(pctiles.length);
+    }
+    float[] quantiles = sketch.getQuantiles(pctiles);
+    double[] ret = new double[quantiles.length];
+    for (int i = 0; i < quantiles.length; ++i) {
+      ret[i] = quantiles[i];
+    }
+    return ret;
+  }
+
+  @Override
+  public double[] getCDF(KllFloatsSketch sketch, double[] splitPoints) {
+    if (sketch.isEmpty()) {
+      return nans(splitPoints.length + 1);
+    }
+    return sketch.getCDF(toFloats(splitPoints));
+  }
+
+  @Override
+  public double[] getPMF(KllFloatsSketch sketch, double[] splitPoints) {
+    if (sketch.isEmpty()) {
+      return nans(splitPoints.length + 1);
+    }
+    return sketch.getPMF(toFloats(splitPoints));
+  }
+
+  @Override
+  public double getRank(KllFloatsSketch sketch, double value) {
+    if (sketch.isEmpty()) {
+      return Double.NaN;
+    }
+    return sketch.getRank((float) value);
+  }
+
+  private static float[] toFloats(double[] values) {
+    float[] ret = new float[values.length];
+    for (int i = 0; i < values.length; ++i) {
+      ret[i] = (float) values[i];
+    }
+    return ret;
+  }
+
 }
@@ -0,0 +1,120 @@
+package com.caseystella.sketchy.sketches.statistics.distribution.types.sketch;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.WritableMemory;
+
+/**
+ * The absence of a quantile sketch, for distribution sketches which only keep their count, sums,
+ * extrema and moments. Nothing is stored or serialized, and the quantile queries throw.
+ */
+public class MomentsOnlySketchType implements SketchType<Object> {
+
+  private static UnsupportedOperationException unsupported() {
+    return new UnsupportedOperationException(
+        "This sketch only keeps moments, so it cannot answer quantile queries. "
+            + "Use a sketch with a quantile backend, e.g. DOUBLES, instead.");
+  }
+
+  @Override
+  public Object createSketch() {
+    return null;
+  }
+
+  @Override
+  public Object reset(Object sketch) {
+    return null;
+  }
+
+  @Override
+  public void addValue(Object sketch, Number value) {}
+
+  @Override
+  public void addDouble(Object sketch, double value) {}
+
+  @Override
+  public void addDoubles(Object sketch, double[] values, int off, int len) {}
+
+  @Override
+  public void addLongs(Object sketch, long[] values, int off, int len) {}
+
+  @Override
+  public Object merge(Object s1, Object s2) {
+    return null;
+  }
+
+  @Override
+  public Object mergeAll(Iterable<Object> sketches) {
+    return null;
+  }
+
+  @Override
+  public void serialize(Object v, Output output) {}
+
+  @Override
+  public Object materialize(Input input) {
+    return null;
+  }
+
+  @Override
+  public int getSerializedSizeBytes(Object v) {
+    return 0;
+  }
+
+  @Override
+  public void serialize(Object v, WritableMemory mem) {}
+
+  @Override
+  public Object wrap(Memory mem) {
+    return null;
+  }
+
+  @Override
+  public Object heapify(Memory mem) {
+    return null;
+  }
+
+  /**
+   * @return NaN, as there are no quantiles to be in error.
+   */
+  @Override
+  public double getNormalizedRankError() {
+    return Double.NaN;
+  }
+
+  @Override
+  public double getNormalizedRankError(Object sketch) {
+    return Double.NaN;
+  }
+
+  @Override
+  public int getMaxSerializedSizeBytes(long n) {
+    return 0;
+  }
+
+  @Override
+  public double getPercentile(Object sketch, double pctile) {
+    throw unsupported();
+  }
+
+  @Override
+  public double[] getPercentiles(Object sketch, double[] pctiles) {
+    throw unsupported();
+  }
+
+  @Override
+  public double[] getCDF(Object sketch, double[] splitPoints) {
+    throw unsupported();
+  }
+
+  @Override
+  public double[] getPMF(Object sketch, double[] splitPoints) {
+    throw unsupported();
+  }
+
+  @Override
+  public double getRank(Object sketch, double value) {
+    throw unsupported();
+  }
+}
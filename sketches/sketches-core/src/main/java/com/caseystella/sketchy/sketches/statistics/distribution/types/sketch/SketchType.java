@@ -5,17 +5,115 @@ import com.esotericsoftware.kryo.io.Output;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.WritableMemory;
 
 public interface SketchType<S> {
   S createSketch();
 
+  /**
+   * Empty a sketch so that it can be reused.
+   *
+   * @return The emptied sketch, which is the one given where the underlying sketch can be reset in
+   *         place and a new one otherwise.
+   */
+  S reset(S sketch);
+
   void addValue(S sketch, Number value);
 
+  void addDouble(S sketch, double value);
+
+  void addDoubles(S sketch, double[] values, int off, int len);
+
+  void addLongs(S sketch, long[] values, int off, int len);
+
+  /**
+   * Merge two sketches into one of this type's k. Sketches of a larger k are downsampled as they
+   * are merged in.
+   */
   S merge(S s1, S s2);
 
+  /**
+   * Merge many sketches through a single union rather than a chain of pairwise merges, into a
+   * sketch of this type's k.
+   */
+  S mergeAll(Iterable<S> sketches);
+
   void serialize(S v, Output output);
 
   S materialize(Input input);
 
+  /**
+   * @return The number of bytes {@link #serialize(Object, WritableMemory)} will write for the sketch.
+   */
+  int getSerializedSizeBytes(S v);
+
+  /**
+   * Serialize the sketch in its compact form directly into memory, which may be off-heap.
+   */
+  void serialize(S v, WritableMemory mem);
+
+  /**
+   * Read a sketch written by {@link #serialize(Object, WritableMemory)}. Where the underlying sketch
+   * supports it, the memory is wrapped in place rather than copied onto the heap, in which case the
+   * sketch is read-only and valid only as long as the memory is.
+   */
+  S wrap(Memory mem);
+
+  /**
+   * Read a sketch written by {@link #serialize(Object, WritableMemory)} by copying it onto the heap.
+   */
+  S heapify(Memory mem);
+
+  /**
+   * @return The sketch if values can be added to it, otherwise a copy of it which they can be.
+   *         Sketches which are wrapped or compact are read-only, and are copied onto the heap
+   *         before the first add.
+   */
+  default S updatable(S sketch) {
+    return sketch;
+  }
+
   double getPercentile(S sketch, double pctile);
+
+  /**
+   * The quantiles at each of the fractions, computed from a single sorted view of the sketch. The
+   * quantiles of an empty sketch are NaN.
+   */
+  double[] getPercentiles(S sketch, double[] pctiles);
+
+  /**
+   * The fraction of the values below each split point, followed by 1. The split points must be
+   * unique and increasing. The CDF of an empty sketch is NaN.
+   */
+  double[] getCDF(S sketch, double[] splitPoints);
+
+  /**
+   * The fraction of the values in each of the intervals the split points define, the first being
+   * below the first split point and the last at or above the last split point.
+   */
+  double[] getPMF(S sketch, double[] splitPoints);
+
+  /**
+   * The fraction of the values below value.
+   */
+  double getRank(S sketch, double value);
+
+  /**
+   * @return The normalized rank error of a single quantile query, at 99% confidence, for a sketch
+   *         of this type's k.
+   */
+  double getNormalizedRankError();
+
+  /**
+   * @return The normalized rank error of a single quantile query against this sketch, whose k may
+   *         differ from this type's after a merge.
+   */
+  double getNormalizedRankError(S sketch);
+
+  /**
+   * @return The most bytes {@link #serialize(Object, WritableMemory)} can write for a sketch of
+   *         this type's k holding n values.
+   */
+  int getMaxSerializedSizeBytes(long n);
 }
@@ -1,17 +1,102 @@
 package com.caseystella.sketchy.sketches.statistics.distribution.types.sketch;
 
 import java.util.function.Function;
+import java.util.function.IntPredicate;
 
+/**
+ * The quantile sketches which can back a distribution sketch.
+ * <ul>
+ * <li>DOUBLES_SKETCH - the classic DataSketches quantiles sketch over doubles.</li>
+ * <li>FLOATS_SKETCH - the KLL sketch over floats, which needs roughly a third to a half of the
+ * space of the classic sketch for the same normalized rank error.</li>
+ * <li>MOMENTS_ONLY - no quantile sketch at all, for when only the moments are needed.</li>
+ * </ul>
+ * These are the quantile sketches of the datasketches release this is built against. The
+ * relative-error (REQ) sketch and the KLL sketch over doubles only arrived in later releases, so
+ * they are not offered here.
+ */
 public enum SketchTypes {
-  DOUBLES_SKETCH(k -> new DoublesSketchType(k)), FLOATS_SKETCH(k -> new FloatsSketchType(k));
+  // the classic sketch only takes powers of 2 for k
+  DOUBLES_SKETCH(k -> new DoublesSketchType(k), 2, 1 << 15, true),
+  FLOATS_SKETCH(k -> new FloatsSketchType(k), 8, (1 << 16) - 1, false),
+  // k is ignored, so any will do
+  MOMENTS_ONLY(k -> new MomentsOnlySketchType(), 128, 128, false);
 
   Function<Integer, SketchType<?>> creator;
+  int minK;
+  int maxK;
+  boolean powerOfTwoK;
 
-  SketchTypes(Function<Integer, SketchType<?>> creator) {
+  SketchTypes(Function<Integer, SketchType<?>> creator, int minK, int maxK,
+      boolean powerOfTwoK) {
     this.creator = creator;
+    this.minK = minK;
+    this.maxK = maxK;
+    this.powerOfTwoK = powerOfTwoK;
   }
 
   public <S> SketchType<S> create(int k) {
     return (SketchType<S>) creator.apply(k);
   }
+
+  /**
+   * The smallest k whose normalized rank error, for a single quantile at 99% confidence, is at most
+   * epsilon.
+   *
+   * @throws IllegalArgumentException if no k of this sketch is that accurate.
+   */
+  public int getKForError(double epsilon) {
+    int ret = smallestK(k -> create(k).getNormalizedRankError() <= epsilon);
+    if (ret < 0) {
+      throw new IllegalArgumentException(
+          "No " + this + " can achieve a normalized rank error of " + epsilon);
+    }
+    return ret;
+  }
+
+  /**
+   * The largest k for which a sketch of n values serializes to at most maxBytes.
+   *
+   * @throws IllegalArgumentException if even the smallest k of this sketch is too big.
+   */
+  public int getKForBudget(int maxBytes, long n) {
+    // the size only grows with k, so the largest k within budget is one less than the smallest
+    // k which is over it
+    int over = smallestK(k -> create(k).getMaxSerializedSizeBytes(n) > maxBytes);
+    if (over == minK) {
+      throw new IllegalArgumentException(
+          "No " + this + " of " + n + " values fits in " + maxBytes + " bytes");
+    }
+    if (over < 0) {
+      return maxK;
+    }
+    return powerOfTwoK ? over >>> 1 : over - 1;
+  }
+
+  /**
+   * Binary search for the smallest k for which a property, which once true stays true as k grows,
+   * holds.
+   *
+   * @return The k, or -1 if the property does not hold for any k.
+   */
+  private int smallestK(IntPredicate property) {
+    int lo = powerOfTwoK ? Integer.numberOfTrailingZeros(minK) : minK;
+    int hi = powerOfTwoK ? Integer.numberOfTrailingZeros(maxK) : maxK;
+    if (!property.test(toK(hi))) {
+      return -1;
+    }
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (property.test(toK(mid))) {
+        hi = mid;
+      } else {
+        lo = mid + 1;
+      }
+    }
+    return toK(lo);
+  }
+
+  private int toK(int index) {
+    return powerOfTwoK ? 1 << index : index;
+  }
 }
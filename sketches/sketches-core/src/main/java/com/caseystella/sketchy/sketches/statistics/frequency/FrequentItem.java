@@ -0,0 +1,60 @@
+package com.caseystella.sketchy.sketches.statistics.frequency;
+
+import java.util.Objects;
+
+/**
+ * An item and the bounds on its count from a {@link FrequentItemsSketch}.
+ */
+public class FrequentItem<T> {
+  private final T item;
+  private final long estimate;
+  private final long lowerBound;
+  private final long upperBound;
+
+  public FrequentItem(T item, long estimate, long lowerBound, long upperBound) {
+    this.item = item;
+    this.estimate = estimate;
+    this.lowerBound = lowerBound;
+    this.upperBound = upperBound;
+  }
+
+  public T getItem() {
+    return item;
+  }
+
+  public long getEstimate() {
+    return estimate;
+  }
+
+  public long getLowerBound() {
+    return lowerBound;
+  }
+
+  public long getUpperBound() {
+    return upperBound;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    FrequentItem<?> that = (FrequentItem<?>) o;
+    return estimate == that.estimate && lowerBound == that.lowerBound
+        && upperBound == that.upperBound && Objects.equals(item, that.item);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(item, estimate, lowerBound, upperBound);
+  }
+
+  @Override
+  public String toString() {
+    return "FrequentItem{" + "item=" + item + ", estimate=" + estimate + ", lowerBound="
+        + lowerBound + ", upperBound=" + upperBound + '}';
+  }
+}
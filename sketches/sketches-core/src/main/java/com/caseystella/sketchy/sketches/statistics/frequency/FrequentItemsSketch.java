@@ -0,0 +1,57 @@
+package com.caseystella.sketchy.sketches.statistics.frequency;
+
+import com.esotericsoftware.kryo.KryoSerializable;
+import java.util.List;
+
+/**
+ * A mergeable sketch of the most frequent items in a stream, i.e. the heavy hitters, in bounded
+ * memory. At most 3/4 of the maximum map size items are tracked at once, and the count of any item
+ * is estimated to within {@link #getMaximumError()}.
+ */
+public interface FrequentItemsSketch<T> extends KryoSerializable {
+  FrequentItemsSketches getType();
+
+  /**
+   * @return The maximum size of the map of tracked items, a power of 2.
+   */
+  int getMaxMapSize();
+
+  void addValue(T item);
+
+  void addValue(T item, long count);
+
+  boolean isEmpty();
+
+  /**
+   * @return The total of the counts added to the sketch.
+   */
+  long getStreamLength();
+
+  /**
+   * @return The most any estimated count can be off by.
+   */
+  long getMaximumError();
+
+  long getEstimate(T item);
+
+  long getLowerBound(T item);
+
+  long getUpperBound(T item);
+
+  /**
+   * The items which may be frequent, i.e. whose upper bound exceeds the maximum error, ordered by
+   * their estimated counts, largest first.
+   */
+  List<FrequentItem<T>> getFrequentItems();
+
+  /**
+   * @return At most the k most frequent items, ordered by their estimated counts, largest first.
+   */
+  List<FrequentItem<T>> getTopK(int k);
+
+  /**
+   * Merge with another sketch of the same type, returning a new sketch with the larger of the two
+   * maximum map sizes.
+   */
+  FrequentItemsSketch<T> merge(FrequentItemsSketch<T> sketch);
+}
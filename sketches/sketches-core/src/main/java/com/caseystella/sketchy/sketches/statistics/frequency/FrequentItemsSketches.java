@@ -0,0 +1,49 @@
+package com.caseystella.sketchy.sketches.statistics.frequency;
+
+import com.caseystella.sketchy.sketches.statistics.frequency.sketchimpl.LongsFrequentItemsSketch;
+import com.caseystella.sketchy.sketches.statistics.frequency.sketchimpl.StringsFrequentItemsSketch;
+import java.util.function.Function;
+
+public enum FrequentItemsSketches {
+  LONGS((byte) 1, m -> new LongsFrequentItemsSketch(m)), STRINGS((byte) 2,
+      m -> new StringsFrequentItemsSketch(m));
+
+  public static final int DEFAULT_MAX_MAP_SIZE = 1024;
+  // A stable identifier for the type, used in binary formats in place of the class name
+  byte id;
+  Function<Integer, FrequentItemsSketch<?>> creator;
+
+  FrequentItemsSketches(byte id, Function<Integer, FrequentItemsSketch<?>> creator) {
+    this.id = id;
+    this.creator = creator;
+  }
+
+  public byte getId() {
+    return id;
+  }
+
+  public static FrequentItemsSketches fromId(byte id) {
+    for (FrequentItemsSketches type : values()) {
+      if (type.id == id) {
+        return type;
+      }
+    }
+    throw new IllegalArgumentException("Unknown frequent items sketch type: " + id);
+  }
+
+  public <T> FrequentItemsSketch<T> create(Class<T> clazz) {
+    return create(DEFAULT_MAX_MAP_SIZE, clazz);
+  }
+
+  /**
+   * @param maxMapSize The maximum number of items to track, which must be a power of 2. The memory
+   *        used is bounded by this rather than by the number of distinct items.
+   */
+  public <T> FrequentItemsSketch<T> create(int maxMapSize, Class<T> clazz) {
+    if (Integer.bitCount(maxMapSize) != 1) {
+      throw new IllegalArgumentException(
+          "The maximum map size must be a power of 2: " + maxMapSize);
+    }
+    return (FrequentItemsSketch<T>) creator.apply(maxMapSize);
+  }
+}
@@ -0,0 +1,113 @@
+package com.caseystella.sketchy.sketches.statistics.frequency.sketchimpl;
+
+import com.caseystella.sketchy.sketches.statistics.frequency.FrequentItem;
+import com.caseystella.sketchy.sketches.statistics.frequency.FrequentItemsSketch;
+import com.caseystella.sketchy.sketches.statistics.frequency.FrequentItemsSketches;
+import com.caseystella.sketchy.utilities.SerDeUtils;
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.List;
+import org.apache.datasketches.memory.Memory;
+
+/**
+ * The common state and serialization of the frequent items sketches, which wrap a DataSketches
+ * frequencies sketch of type S.
+ */
+public abstract class FrequentItemsSketchImpl<T, S>
+    implements FrequentItemsSketch<T>, Serializable {
+  private static final long serialVersionUID = 1L;
+  protected S sketch;
+  int maxMapSize;
+
+  public FrequentItemsSketchImpl() {
+    this(FrequentItemsSketches.DEFAULT_MAX_MAP_SIZE);
+  }
+
+  public FrequentItemsSketchImpl(int maxMapSize) {
+    this.maxMapSize = maxMapSize;
+    this.sketch = createSketch(maxMapSize);
+  }
+
+  abstract protected S createSketch(int maxMapSize);
+
+  abstract protected FrequentItemsSketchImpl<T, S> createNew(int maxMapSize);
+
+  abstract protected byte[] toByteArray(S s);
+
+  abstract protected S heapify(Memory mem);
+
+  /**
+   * Merge from into into, which is modified.
+   */
+  abstract protected void mergeInto(S into, S from);
+
+  @Override
+  public int getMaxMapSize() {
+    return maxMapSize;
+  }
+
+  @Override
+  public void addValue(T item) {
+    addValue(item, 1);
+  }
+
+  @Override
+  public List<FrequentItem<T>> getTopK(int k) {
+    List<FrequentItem<T>> items = getFrequentItems();
+    return items.size() <= k ? items : items.subList(0, k);
+  }
+
+  @Override
+  public FrequentItemsSketch<T> merge(FrequentItemsSketch<T> other) {
+    if (other.getType() != getType()) {
+      throw new IllegalArgumentException(
+          "Unable to merge a " + getType() + " sketch with a " + other.getType() + " sketch.");
+    }
+    @SuppressWarnings("unchecked")
+    FrequentItemsSketchImpl<T, S> b = (FrequentItemsSketchImpl<T, S>) other;
+    FrequentItemsSketchImpl<T, S> combined = createNew(Math.max(maxMapSize, b.maxMapSize));
+    mergeInto(combined.sketch, sketch);
+    mergeInto(combined.sketch, b.sketch);
+    return combined;
+  }
+
+  @Override
+  public void write(Kryo kryo, Output output) {
+    output.writeInt(maxMapSize);
+    byte[] bytes = toByteArray(sketch);
+    output.writeInt(bytes.length);
+    output.writeBytes(bytes);
+  }
+
+  @Override
+  public void read(Kryo kryo, Input input) {
+    maxMapSize = input.readInt();
+    int len = input.readInt();
+    sketch = heapify(Memory.wrap(input.readBytes(len)));
+  }
+
+  private void writeObject(java.io.ObjectOutputStream output) throws IOException {
+    byte[] ser = SerDeUtils.toBytes(this);
+    output.writeInt(ser.length);
+    output.write(ser);
+  }
+
+  private void readObject(java.io.ObjectInputStream input)
+      throws IOException, ClassNotFoundException {
+    int len = input.readInt();
+    byte[] ser = new byte[len];
+    input.readFully(ser);
+    FrequentItemsSketchImpl<T, S> s = SerDeUtils.fromBytes(ser, this.getClass());
+    this.maxMapSize = s.maxMapSize;
+    this.sketch = s.sketch;
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + "{" + "maxMapSize=" + maxMapSize + ", streamLength="
+        + getStreamLength() + ", maximumError=" + getMaximumError() + '}';
+  }
+}
@@ -0,0 +1,104 @@
+package com.caseystella.sketchy.sketches.statistics.frequency.sketchimpl;
+
+import com.caseystella.sketchy.sketches.statistics.frequency.FrequentItem;
+import com.caseystella.sketchy.sketches.statistics.frequency.FrequentItemsSketches;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.datasketches.frequencies.ErrorType;
+import org.apache.datasketches.frequencies.LongsSketch;
+import org.apache.datasketches.memory.Memory;
+
+public class LongsFrequentItemsSketch extends FrequentItemsSketchImpl<Long, LongsSketch> {
+  private static final long serialVersionUID = 1L;
+
+  public LongsFrequentItemsSketch() {
+    super();
+  }
+
+  public LongsFrequentItemsSketch(int maxMapSize) {
+    super(maxMapSize);
+  }
+
+  @Override
+  public FrequentItemsSketches getType() {
+    return FrequentItemsSketches.LONGS;
+  }
+
+  @Override
+  protected LongsSketch createSketch(int maxMapSize) {
+    return new LongsSketch(maxMapSize);
+  }
+
+  @Override
+  protected FrequentItemsSketchImpl<Long, LongsSketch> createNew(int maxMapSize) {
+    return new LongsFrequentItemsSketch(maxMapSize);
+  }
+
+  @Override
+  protected byte[] toByteArray(LongsSketch s) {
+    return s.toByteArray();
+  }
+
+  @Override
+  protected LongsSketch heapify(Memory mem) {
+    return LongsSketch.getInstance(mem);
+  }
+
+  @Override
+  protected void mergeInto(LongsSketch into, LongsSketch from) {
+    into.merge(from);
+  }
+
+  /**
+   * Add a primitive long without boxing it.
+   */
+  public void addLong(long item) {
+    sketch.update(item);
+  }
+
+  @Override
+  public void addValue(Long item, long count) {
+    sketch.update(item, count);
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return sketch.isEmpty();
+  }
+
+  @Override
+  public long getStreamLength() {
+    return sketch.getStreamLength();
+  }
+
+  @Override
+  public long getMaximumError() {
+    return sketch.getMaximumError();
+  }
+
+  @Override
+  public long getEstimate(Long item) {
+    return sketch.getEstimate(item);
+  }
+
+  @Override
+  public long getLowerBound(Long item) {
+    return sketch.getLowerBound(item);
+  }
+
+  @Override
+  public long getUpperBound(Long item) {
+    return sketch.getUpperBound(item);
+  }
+
+  @Override
+  public List<FrequentItem<Long>> getFrequentItems() {
+    LongsSketch.Row[] rows = sketch.getFrequentItems(ErrorType.NO_FALSE_NEGATIVES);
+    List<FrequentItem<Long>> ret = new ArrayList<>(rows.length);
+    for (LongsSketch.Row row : rows) {
+      ret.add(new FrequentItem<>(row.getItem(), row.getEstimate(), row.getLowerBound(),
+          row.getUpperBound()));
+    }
+    return ret;
+  }
+}
@@ -0,0 +1,100 @@
+package com.caseystella.sketchy.sketches.statistics.frequency.sketchimpl;
+
+import com.caseystella.sketchy.sketches.statistics.frequency.FrequentItem;
+import com.caseystella.sketchy.sketches.statistics.frequency.FrequentItemsSketches;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.datasketches.ArrayOfStringsSerDe;
+import org.apache.datasketches.frequencies.ErrorType;
+import org.apache.datasketches.frequencies.ItemsSketch;
+import org.apache.datasketches.memory.Memory;
+
+public class StringsFrequentItemsSketch
+    extends FrequentItemsSketchImpl<String, ItemsSketch<String>> {
+  private static final long serialVersionUID = 1L;
+  private static final ArrayOfStringsSerDe SERDE = new ArrayOfStringsSerDe();
+
+  public StringsFrequentItemsSketch() {
+    super();
+  }
+
+  public StringsFrequentItemsSketch(int maxMapSize) {
+    super(maxMapSize);
+  }
+
+  @Override
+  public FrequentItemsSketches getType() {
+    return FrequentItemsSketches.STRINGS;
+  }
+
+  @Override
+  protected ItemsSketch<String> createSketch(int maxMapSize) {
+    return new ItemsSketch<>(maxMapSize);
+  }
+
+  @Override
+  protected FrequentItemsSketchImpl<String, ItemsSketch<String>> createNew(int maxMapSize) {
+    return new StringsFrequentItemsSketch(maxMapSize);
+  }
+
+  @Override
+  protected byte[] toByteArray(ItemsSketch<String> s) {
+    return s.toByteArray(SERDE);
+  }
+
+  @Override
+  protected ItemsSketch<String> heapify(Memory mem) {
+    return ItemsSketch.getInstance(mem, SERDE);
+  }
+
+  @Override
+  protected void mergeInto(ItemsSketch<String> into, ItemsSketch<String> from) {
+    into.merge(from);
+  }
+
+  @Override
+  public void addValue(String item, long count) {
+    sketch.update(item, count);
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return sketch.isEmpty();
+  }
+
+  @Override
+  public long getStreamLength() {
+    return sketch.getStreamLength();
+  }
+
+  @Override
+  public long getMaximumError() {
+    return sketch.getMaximumError();
+  }
+
+  @Override
+  public long getEstimate(String item) {
+    return sketch.getEstimate(item);
+  }
+
+  @Override
+  public long getLowerBound(String item) {
+    return sketch.getLowerBound(item);
+  }
+
+  @Override
+  public long getUpperBound(String item) {
+    return sketch.getUpperBound(item);
+  }
+
+  @Override
+  public List<FrequentItem<String>> getFrequentItems() {
+    ItemsSketch.Row<String>[] rows = sketch.getFrequentItems(ErrorType.NO_FALSE_NEGATIVES);
+    List<FrequentItem<String>> ret = new ArrayList<>(rows.length);
+    for (ItemsSketch.Row<String> row : rows) {
+      ret.add(new FrequentItem<>(row.getItem(), row.getEstimate(), row.getLowerBound(),
+          row.getUpperBound()));
+    }
+    return ret;
+  }
+}
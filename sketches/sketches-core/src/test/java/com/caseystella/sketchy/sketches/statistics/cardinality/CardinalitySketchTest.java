@@ -0,0 +1,74 @@
+package com.caseystella.sketchy.sketches.statistics.cardinality;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.caseystella.sketchy.utilities.SerDeUtils;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import org.junit.jupiter.api.Test;
+
+public class CardinalitySketchTest {
+
+  @Test
+  public void testEstimate() {
+    for (CardinalitySketches type : CardinalitySketches.values()) {
+      CardinalitySketch sketch = type.create();
+      assertTrue(sketch.isEmpty());
+      for (int i = 0; i < 100000; ++i) {
+        // every value is added twice, in different forms
+        sketch.addValue(i);
+        sketch.addLong(i);
+      }
+      assertEquals(100000, sketch.getEstimate(), 100000 * 0.05, type.name());
+      assertTrue(sketch.getLowerBound(2) <= sketch.getEstimate());
+      assertTrue(sketch.getUpperBound(2) >= sketch.getEstimate());
+    }
+  }
+
+  @Test
+  public void testMerge() {
+    for (CardinalitySketches type : CardinalitySketches.values()) {
+      CardinalitySketch left = type.create();
+      CardinalitySketch right = type.create(10);
+      for (int i = 0; i < 60000; ++i) {
+        left.addString("host-" + i);
+      }
+      for (int i = 40000; i < 100000; ++i) {
+        right.addString("host-" + i);
+      }
+      CardinalitySketch merged = left.merge(right);
+      assertEquals(10, merged.getLgK());
+      assertEquals(type, merged.getType());
+      assertEquals(100000, merged.getEstimate(), 100000 * 0.1, type.name());
+    }
+    assertThrows(IllegalArgumentException.class,
+        () -> CardinalitySketches.HLL.create().merge(CardinalitySketches.CPC.create()));
+  }
+
+  @Test
+  public void testSerDe() throws IOException, ClassNotFoundException {
+    for (CardinalitySketches type : CardinalitySketches.values()) {
+      CardinalitySketch sketch = type.create();
+      for (int i = 0; i < 10000; ++i) {
+        sketch.addDouble(i / 10.0);
+      }
+      CardinalitySketch kryo = SerDeUtils.fromBytes(SerDeUtils.toBytes(sketch), sketch.getClass());
+      assertEquals(sketch, kryo);
+      assertEquals(sketch.getEstimate(), kryo.getEstimate(), 0);
+
+      ByteArrayOutputStream bos = new ByteArrayOutputStream();
+      try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+        oos.writeObject(sketch);
+      }
+      try (ObjectInputStream ois =
+          new ObjectInputStream(new ByteArrayInputStream(bos.toByteArray()))) {
+        assertEquals(sketch, ois.readObject());
+      }
+    }
+  }
+}
@@ -18,6 +18,8 @@ package com.caseystella.sketchy.sketches.statistics.distribution;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import com.caseystella.sketchy.utilities.SerDeUtils;
 import java.io.ByteArrayInputStream;
@@ -25,7 +27,10 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import org.apache.commons.math3.random.GaussianRandomGenerator;
 import org.apache.commons.math3.random.MersenneTwister;
@@ -196,6 +201,180 @@ public abstract class AbstractFloatingPointDistributionSketchTest<T extends Numb
     validateEquality(values);
   }
 
+  @Test
+  public void testPrimitiveAddMatchesBoxedAdd() {
+    DistributionSketch<T> boxed = createSketch();
+    DistributionSketch<T> primitive = createSketch();
+    GaussianRandomGenerator gaussian = new GaussianRandomGenerator(new MersenneTwister(0L));
+    for (int i = 0; i < 10000; ++i) {
+      double d = gaussian.nextNormalizedDouble() + 10;
+      boxed.addValue(convert(d));
+      primitive.addDouble(convert(d).doubleValue());
+    }
+    assertEquals(boxed, primitive);
+    for (double d = 10.0; d < 100.0; d += 10) {
+      assertEquals(boxed.getPercentile(d), primitive.getPercentile(d), getPercentileDelta());
+    }
+  }
+
+  @Test
+  public void testBatchAddMatchesSingleAdd() {
+    DistributionSketch<T> single = createSketch();
+    DistributionSketch<T> array = createSketch();
+    DistributionSketch<T> buffer = createSketch();
+    GaussianRandomGenerator gaussian = new GaussianRandomGenerator(new MersenneTwister(0L));
+    double[] values = new double[10000];
+    for (int i = 0; i < values.length; ++i) {
+      values[i] = convert(gaussian.nextNormalizedDouble() + 10).doubleValue();
+    }
+    for (int i = 100; i < values.length; ++i) {
+      single.addDouble(values[i]);
+    }
+    array.addValues(values, 100, 5000);
+    array.addValues(values, 5100, values.length - 5100);
+    DoubleBuffer directBuffer = ByteBuffer.allocateDirect(8 * values.length).asDoubleBuffer();
+    directBuffer.put(values).position(100);
+    buffer.addValues(directBuffer);
+    assertFalse(directBuffer.hasRemaining());
+    assertEquals(single, array);
+    assertEquals(single, buffer);
+    for (double d = 10.0; d < 100.0; d += 10) {
+      assertEquals(single.getPercentile(d), array.getPercentile(d), getPercentileDelta());
+    }
+  }
+
+  @Test
+  public void testBatchAddOutOfRange() {
+    DistributionSketch<T> sketch = createSketch();
+    assertThrows(IndexOutOfBoundsException.class,
+        () -> sketch.addValues(new double[10], 5, 6));
+    assertThrows(IndexOutOfBoundsException.class,
+        () -> sketch.addValues(new double[10], -1, 2));
+  }
+
+  @Test
+  public void testGetPercentiles() {
+    DistributionSketch<T> sketch = createSketch();
+    double[] ps = {50, 75, 95, 99};
+    for (double p : sketch.getPercentiles(ps)) {
+      assertTrue(Double.isNaN(p));
+    }
+    for (int i = 1; i <= 10000; ++i) {
+      sketch.addValue(convert((double) i));
+    }
+    double[] percentiles = sketch.getPercentiles(ps);
+    for (int i = 0; i < ps.length; ++i) {
+      assertEquals(sketch.getPercentile(ps[i]), percentiles[i], 0);
+      assertEquals(100 * ps[i], percentiles[i], 100 * ps[i] * getPercentileDelta());
+    }
+    // the percentiles follow an update
+    for (int i = 10001; i <= 20000; ++i) {
+      sketch.addValue(convert((double) i));
+    }
+    percentiles = sketch.getPercentiles(ps);
+    for (int i = 0; i < ps.length; ++i) {
+      assertEquals(200 * ps[i], percentiles[i], 200 * ps[i] * getPercentileDelta());
+    }
+  }
+
+  @Test
+  public void testReset() {
+    DistributionSketch<T> sketch = createSketch();
+    for (int i = 1; i <= 10000; ++i) {
+      sketch.addValue(convert((double) i));
+    }
+    assertEquals(5000, sketch.getPercentile(50), 5000 * getPercentileDelta());
+    sketch.reset();
+    assertEquals(0, sketch.getCount());
+    assertFalse(sketch.getMin().isPresent());
+    assertFalse(sketch.getMax().isPresent());
+    assertTrue(Double.isNaN(sketch.getPercentiles(new double[] {50})[0]));
+
+    // the same number of values again, into the same underlying sketch
+    DistributionSketch<T> fresh = createSketch();
+    for (int i = 1; i <= 10000; ++i) {
+      sketch.addValue(convert(2.0 * i));
+      fresh.addValue(convert(2.0 * i));
+    }
+    assertEquals(fresh, sketch);
+    assertEquals(10000, sketch.getPercentile(50), 10000 * getPercentileDelta());
+  }
+
+  @Test
+  public void testHistogram() {
+    DistributionSketch<T> sketch = createSketch();
+    double[] splitPoints = {2500.5, 5000.5, 7500.5};
+    assertTrue(Double.isNaN(sketch.getRank(1)));
+    for (int i = 1; i <= 10000; ++i) {
+      sketch.addValue(convert((double) i));
+    }
+    double[] cdf = sketch.getCDF(splitPoints);
+    double[] pmf = sketch.getPMF(splitPoints);
+    assertEquals(splitPoints.length + 1, cdf.length);
+    assertEquals(splitPoints.length + 1, pmf.length);
+    double cumulative = 0;
+    for (int i = 0; i < cdf.length; ++i) {
+      cumulative += pmf[i];
+      assertEquals(0.25 * (i + 1), cdf[i], getPercentileDelta());
+      assertEquals(0.25, pmf[i], getPercentileDelta());
+      assertEquals(cdf[i], cumulative, 1e-9);
+    }
+    assertEquals(cdf[1], sketch.getRank(splitPoints[1]), 1e-9);
+    assertEquals(0, sketch.getRank(0), 0);
+    assertEquals(1, sketch.getRank(10001), 0);
+  }
+
+  @Test
+  public void testMergeAll() {
+    DescriptiveStatistics stats = new DescriptiveStatistics();
+    SummaryStatistics summaryStats = new SummaryStatistics();
+    GaussianRandomGenerator gaussian = new GaussianRandomGenerator(new MersenneTwister(0L));
+    // enough sketches to take the parallel path
+    List<DistributionSketch<T>> sketches = new ArrayList<>();
+    for (int i = 0; i < 1000; ++i) {
+      DistributionSketch<T> sketch = createSketch();
+      for (int j = 0; j < 100; ++j) {
+        double d = gaussian.nextNormalizedDouble() + 10;
+        stats.addValue(d);
+        summaryStats.addValue(d);
+        sketch.addValue(convert(d));
+      }
+      sketches.add(sketch);
+    }
+    validateStatisticsProvider(DistributionSketches.mergeAll(sketches), summaryStats, stats,
+        getDelta(), getPercentileDelta());
+    validateStatisticsProvider(
+        sketches.parallelStream().collect(DistributionSketches.merging()).get(), summaryStats,
+        stats, getDelta(), getPercentileDelta());
+    validateStatisticsProvider(DistributionSketches.mergeAll(sketches.subList(0, 1)).merge(
+        DistributionSketches.mergeAll(sketches.subList(1, sketches.size()))), summaryStats, stats,
+        getDelta(), getPercentileDelta());
+  }
+
+  @Test
+  public void testCollect() {
+    DescriptiveStatistics stats = new DescriptiveStatistics();
+    SummaryStatistics summaryStats = new SummaryStatistics();
+    GaussianRandomGenerator gaussian = new GaussianRandomGenerator(new MersenneTwister(0L));
+    double[] values = new double[100000];
+    for (int i = 0; i < values.length; ++i) {
+      values[i] = convert(gaussian.nextNormalizedDouble() + 10).doubleValue();
+      stats.addValue(values[i]);
+      summaryStats.addValue(values[i]);
+    }
+    DistributionSketch<T> template = createSketch();
+    DistributionSketches type = template.getType();
+    int k = template.getK();
+    validateStatisticsProvider(type.<T>collect(Arrays.stream(values), k), summaryStats, stats,
+        getDelta(), getPercentileDelta());
+    validateStatisticsProvider(type.<T>collect(Arrays.stream(values).parallel(), k), summaryStats,
+        stats, getDelta(), getPercentileDelta());
+    DistributionSketch<T> collected =
+        Arrays.stream(values).boxed().parallel().collect(type.<T>collecting(k, null));
+    assertEquals(type, collected.getType());
+    validateStatisticsProvider(collected, summaryStats, stats, getDelta(), getPercentileDelta());
+  }
+
   @Test
   public void testUniformlyDistributedRandomData() throws IOException, ClassNotFoundException {
     List<Double> values = new ArrayList<>();
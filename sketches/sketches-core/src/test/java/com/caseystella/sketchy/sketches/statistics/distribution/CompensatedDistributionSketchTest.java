@@ -0,0 +1,119 @@
+package com.caseystella.sketchy.sketches.statistics.distribution;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.caseystella.sketchy.sketches.statistics.distribution.sketchimpl.DistributionSketchFormat;
+import com.caseystella.sketchy.utilities.SerDeUtils;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+public class CompensatedDistributionSketchTest {
+  private static final double BIG = 1e16;
+  private static final int NUM_ONES = 10_000;
+
+  @Test
+  public void testSumDoesNotDrift() {
+    for (DistributionSketches type : new DistributionSketches[] {
+        DistributionSketches.DOUBLES_COMPENSATED, DistributionSketches.FLOAT_COMPENSATED}) {
+      DistributionSketch<Double> sketch = type.create(Double.class);
+      sketch.addDouble(BIG);
+      for (int i = 0; i < NUM_ONES; ++i) {
+        sketch.addDouble(1.0);
+      }
+      assertEquals(BIG + NUM_ONES, sketch.getSum(), 0.0);
+      assertEquals(type, sketch.getType());
+    }
+    // the plain sketch loses every one of the ones
+    DistributionSketch<Double> plain = DistributionSketches.DOUBLES.create(Double.class);
+    plain.addDouble(BIG);
+    for (int i = 0; i < NUM_ONES; ++i) {
+      plain.addDouble(1.0);
+    }
+    assertTrue(plain.getSum() < BIG + NUM_ONES);
+  }
+
+  @Test
+  public void testBatchAndMerge() {
+    double[] ones = new double[NUM_ONES];
+    Arrays.fill(ones, 1.0);
+    DistributionSketch<Double> left = DistributionSketches.DOUBLES_COMPENSATED.create(Double.class);
+    left.addDouble(BIG);
+    left.addValues(ones, 0, NUM_ONES);
+    assertEquals(BIG + NUM_ONES, left.getSum(), 0.0);
+
+    DistributionSketch<Double> right =
+        DistributionSketches.DOUBLES_COMPENSATED.create(Double.class);
+    right.addValues(ones, 0, NUM_ONES);
+    assertEquals(BIG + 2 * NUM_ONES, left.merge(right).getSum(), 0.0);
+    assertEquals(BIG + 2 * NUM_ONES,
+        DistributionSketches.mergeAll(Arrays.asList(left, right)).getSum(), 0.0);
+  }
+
+  @Test
+  public void testFlowErrors() {
+    DistributionSketch<Double> overflow =
+        DistributionSketches.DOUBLES_COMPENSATED.create(Double.class);
+    overflow.addDouble(1.0);
+    assertThrows(IllegalStateException.class, () -> overflow.addDouble(1e200));
+    assertThrows(IllegalStateException.class,
+        () -> overflow.addValues(new double[] {2.0, 1e200, 3.0}, 0, 3));
+    // the rejected values are not in the sketch, which can still be added to
+    assertEquals(1, overflow.getCount());
+    assertEquals(1.0, overflow.getSum(), 0.0);
+    assertEquals(1.0, overflow.getMax().get(), 0.0);
+    overflow.addDouble(2.0);
+    assertEquals(3.0, overflow.getSum(), 0.0);
+    assertEquals(2.0, overflow.getPercentile(100), 0.0);
+
+    // tiny values whose squares round to 0 are fine
+    DistributionSketch<Double> tiny = DistributionSketches.DOUBLES_COMPENSATED.create(Double.class);
+    tiny.addValues(new double[] {1e-200}, 0, 1);
+    tiny.addDouble(1e-200);
+    assertEquals(2e-200, tiny.getSum(), 0.0);
+    // the plain sketch is unchanged
+    DistributionSketch<Double> plain = DistributionSketches.DOUBLES.create(Double.class);
+    plain.addDouble(1e200);
+    assertTrue(Double.isInfinite(plain.getSumSquares()));
+  }
+
+  @Test
+  public void testCompensationIsPersisted() {
+    DistributionSketch<Double> kryo = DistributionSketches.DOUBLES_COMPENSATED.create(Double.class);
+    DistributionSketch<Double> format =
+        DistributionSketches.DOUBLES_COMPENSATED.create(Double.class);
+    kryo.addDouble(BIG);
+    format.addDouble(BIG);
+    // each 1 is below the precision of BIG, so it is only kept if the compensation is
+    for (int i = 0; i < 10; ++i) {
+      kryo = SerDeUtils.fromBytes(SerDeUtils.toBytes(kryo), DistributionSketch.class);
+      kryo.addDouble(1.0);
+      format =
+          DistributionSketchFormat.read(ByteBuffer.wrap(DistributionSketchFormat.toBytes(format)));
+      format.addDouble(1.0);
+    }
+    assertEquals(BIG + 10, kryo.getSum(), 0.0);
+    assertEquals(BIG + 10, format.getSum(), 0.0);
+    assertEquals(BIG + 10,
+        DistributionSketchFormat.getSum(ByteBuffer.wrap(DistributionSketchFormat.toBytes(format))),
+        0.0);
+  }
+
+  @Test
+  public void testSerDe() {
+    DistributionSketch<Double> sketch =
+        DistributionSketches.DOUBLES_COMPENSATED.create(Double.class);
+    sketch.addDouble(BIG);
+    for (int i = 0; i < NUM_ONES; ++i) {
+      sketch.addDouble(1.0);
+    }
+    DistributionSketch<Double> clone =
+        SerDeUtils.fromBytes(SerDeUtils.toBytes(sketch), DistributionSketch.class);
+    assertEquals(DistributionSketches.DOUBLES_COMPENSATED, clone.getType());
+    assertEquals(sketch.getSum(), clone.getSum(), 0.0);
+    clone.addDouble(1.0);
+    assertEquals(BIG + NUM_ONES + 1, clone.getSum(), 0.0);
+  }
+}
@@ -0,0 +1,125 @@
+package com.caseystella.sketchy.sketches.statistics.distribution;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.caseystella.sketchy.utilities.SerDeUtils;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
+import org.apache.commons.math3.stat.descriptive.SummaryStatistics;
+import org.junit.jupiter.api.Test;
+
+public class ConcurrentDistributionSketchTest {
+
+  @Test
+  public void testConcurrentWrites() throws Exception {
+    int numThreads = 8;
+    int perThread = 100000;
+    ConcurrentDistributionSketch<Double> sketch =
+        DistributionSketches.DOUBLES.createConcurrent(512, Double.class);
+    ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int t = 0; t < numThreads; ++t) {
+      final int offset = t * perThread;
+      futures.add(executor.submit(() -> {
+        for (int i = 0; i < perThread; ++i) {
+          sketch.addDouble((offset + i) % 1000 + 1);
+        }
+      }));
+    }
+    // read while the writers are still going
+    sketch.getMean();
+    for (Future<?> f : futures) {
+      f.get();
+    }
+    executor.shutdown();
+
+    DescriptiveStatistics stats = new DescriptiveStatistics();
+    SummaryStatistics summaryStats = new SummaryStatistics();
+    for (int i = 0; i < numThreads * perThread; ++i) {
+      stats.addValue(i % 1000 + 1);
+      summaryStats.addValue(i % 1000 + 1);
+    }
+    AbstractFloatingPointDistributionSketchTest.validateStatisticsProvider(sketch, summaryStats,
+        stats, 1e-3, 10);
+  }
+
+  @Test
+  public void testConcurrentReads() throws Exception {
+    // querying a KLL sketch sorts it in place, so the readers of the shared merged sketch must not
+    // see one another's sorting
+    int numThreads = 8;
+    ConcurrentDistributionSketch<Float> sketch =
+        DistributionSketches.FLOAT.createConcurrent(200, Float.class);
+    for (int i = 0; i < 100000; ++i) {
+      sketch.addDouble((i * 7919) % 100000);
+    }
+    double[] ps = {10, 25, 50, 75, 90, 99};
+    // nothing is written from here on, so every read is of the same cached merge
+    double[] expected = sketch.getPercentiles(ps);
+    ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int t = 0; t < numThreads; ++t) {
+      futures.add(executor.submit(() -> {
+        for (int i = 0; i < 1000; ++i) {
+          assertArrayEquals(expected, sketch.getPercentiles(ps), 0);
+          assertEquals(expected[2], sketch.getPercentile(50), 0);
+        }
+      }));
+    }
+    for (Future<?> f : futures) {
+      f.get();
+    }
+    executor.shutdown();
+  }
+
+  @Test
+  public void testStripesAreBounded() throws Exception {
+    ConcurrentDistributionSketch<Double> sketch =
+        DistributionSketches.DOUBLES.createConcurrent(128, Double.class);
+    // each thread dies once it has written, and must not leave a stripe of its own behind
+    for (int i = 1; i <= 1000; ++i) {
+      final double value = i;
+      Thread writer = new Thread(() -> sketch.addDouble(value));
+      writer.start();
+      writer.join();
+    }
+    assertEquals(1000, sketch.getCount());
+    assertEquals(500.5, sketch.getMean(), 1e-9);
+    int processors = Runtime.getRuntime().availableProcessors();
+    assertTrue(sketch.getNumStripes() <= 2 * processors, sketch.toString());
+  }
+
+  @Test
+  public void testCachedSnapshotIsRefreshedOnWrite() {
+    ConcurrentDistributionSketch<Double> sketch =
+        DistributionSketches.DOUBLES.createConcurrent(128, Double.class);
+    sketch.addDouble(1.0);
+    assertEquals(1, sketch.getCount());
+    sketch.addDouble(3.0);
+    assertEquals(2, sketch.getCount());
+    assertEquals(2.0, sketch.getMean(), 1e-9);
+  }
+
+  @Test
+  public void testSerDe() {
+    ConcurrentDistributionSketch<Double> sketch =
+        DistributionSketches.DOUBLES.createConcurrent(128, Double.class);
+    for (int i = 1; i <= 100; ++i) {
+      sketch.addDouble(i);
+    }
+    ConcurrentDistributionSketch<Double> clone =
+        SerDeUtils.fromBytes(SerDeUtils.toBytes(sketch), ConcurrentDistributionSketch.class);
+    assertEquals(sketch.getCount(), clone.getCount());
+    assertEquals(sketch.getMean(), clone.getMean(), 1e-9);
+    assertEquals(sketch.getVariance(), clone.getVariance(), 1e-9);
+    clone.addDouble(101);
+    assertEquals(101, clone.getCount());
+    assertEquals(128, clone.getK());
+  }
+}
@@ -0,0 +1,94 @@
+package com.caseystella.sketchy.sketches.statistics.distribution;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import com.caseystella.sketchy.sketches.statistics.distribution.sketchimpl.DistributionSketchFormat;
+import com.caseystella.sketchy.utilities.SerDeUtils;
+import com.caseystella.stellar.common.utils.StellarProcessorUtils;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+public class DistributionSketchFunctionsTest {
+
+  private static List<Integer> range(int from, int to) {
+    List<Integer> ret = new ArrayList<>();
+    for (int i = from; i < to; ++i) {
+      ret.add(i);
+    }
+    return ret;
+  }
+
+  @Test
+  public void testInitAndAdd() {
+    Map<String, Object> variables = new HashMap<>();
+    variables.put("values", range(1, 101));
+    DistributionSketch<?> stats = (DistributionSketch<?>) StellarProcessorUtils
+        .run("STATS_ADD(STATS_INIT('LONG', 256), values, 101)", variables);
+    assertEquals(DistributionSketches.LONG, stats.getType());
+    assertEquals(256, stats.getK());
+    assertEquals(101L, stats.getCount());
+
+    variables.put("stats", stats);
+    assertEquals(101L, StellarProcessorUtils.run("STATS_COUNT(stats)", variables));
+    assertEquals(51.0, (Double) StellarProcessorUtils.run("STATS_MEAN(stats)", variables), 1e-9);
+  }
+
+  @Test
+  public void testAddIsInPlace() {
+    Map<String, Object> variables = new HashMap<>();
+    DistributionSketch<Double> stats = DistributionSketches.DOUBLES.create(Double.class);
+    variables.put("stats", stats);
+    assertSame(stats, StellarProcessorUtils.run("STATS_ADD(stats, 1.5, 2.5)", variables));
+    assertEquals(2, stats.getCount());
+    assertEquals(2.0, stats.getMean(), 1e-9);
+  }
+
+  @Test
+  public void testAddToDeserialized() {
+    DistributionSketch<Double> stats = DistributionSketches.DOUBLES.create(Double.class);
+    for (int i = 1; i <= 100; ++i) {
+      stats.addValue((double) i);
+    }
+    byte[] bytes = DistributionSketchFormat.toBytes(stats);
+    // read back with Kryo, and wrapped in place, which leaves a sketch that cannot be updated
+    for (DistributionSketch<?> read : new DistributionSketch<?>[] {
+        SerDeUtils.fromBytes(SerDeUtils.toBytes(stats), DistributionSketch.class),
+        DistributionSketchFormat.wrap(ByteBuffer.wrap(bytes))}) {
+      Map<String, Object> variables = new HashMap<>();
+      variables.put("stats", read);
+      variables.put("values", range(101, 201));
+      assertSame(read, StellarProcessorUtils.run("STATS_ADD(stats, values)", variables));
+      assertEquals(200L, StellarProcessorUtils.run("STATS_COUNT(stats)", variables));
+      assertEquals(200.0,
+          (Double) StellarProcessorUtils.run("STATS_PERCENTILE(stats, 100)", variables), 1e-9);
+    }
+    // adding to the wrapped sketch left its buffer as it was
+    assertEquals(100L, DistributionSketchFormat.getCount(ByteBuffer.wrap(bytes)));
+  }
+
+  @Test
+  public void testMergeAndPercentile() {
+    Map<String, Object> variables = new HashMap<>();
+    variables.put("left", range(1, 501));
+    variables.put("right", range(501, 1001));
+    variables.put("stats", StellarProcessorUtils.run(
+        "STATS_MERGE([STATS_ADD(null, left), null, STATS_ADD(STATS_INIT(), right)])", variables));
+    assertEquals(1000L, StellarProcessorUtils.run("STATS_COUNT(stats)", variables));
+    assertEquals(500.0,
+        (Double) StellarProcessorUtils.run("STATS_PERCENTILE(stats, 50)", variables), 10);
+    @SuppressWarnings("unchecked")
+    List<Double> percentiles = (List<Double>) StellarProcessorUtils
+        .run("STATS_PERCENTILE(stats, [25, 75, 99])", variables);
+    assertEquals(3, percentiles.size());
+    assertEquals(250.0, percentiles.get(0), 10);
+    assertEquals(750.0, percentiles.get(1), 10);
+    assertEquals(990.0, percentiles.get(2), 10);
+    assertNull(StellarProcessorUtils.run("STATS_MERGE([])", variables));
+  }
+}
@@ -0,0 +1,64 @@
+package com.caseystella.sketchy.sketches.statistics.distribution;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.caseystella.sketchy.utilities.SerDeUtils;
+import org.junit.jupiter.api.Test;
+
+public class DistributionSketchPoolTest {
+
+  @Test
+  public void testRecycle() {
+    DistributionSketchPool<Double> pool =
+        DistributionSketches.DOUBLES.createPool(64, 2, Double.class);
+    DistributionSketch<Double> sketch = pool.acquire();
+    for (int i = 1; i <= 1000; ++i) {
+      sketch.addDouble(i);
+    }
+    byte[] flushed = SerDeUtils.toBytes(sketch);
+    assertTrue(pool.release(sketch));
+    assertEquals(1, pool.size());
+
+    DistributionSketch<Double> reused = pool.acquire();
+    assertSame(sketch, reused);
+    assertEquals(0, reused.getCount());
+    assertEquals(64, reused.getK());
+    assertEquals(0, pool.size());
+    // the flushed bytes are unaffected by the reset
+    assertEquals(1000, SerDeUtils.fromBytes(flushed, DistributionSketch.class).getCount());
+  }
+
+  @Test
+  public void testBounded() {
+    DistributionSketchPool<Double> pool =
+        DistributionSketches.DOUBLES.createPool(64, 2, Double.class);
+    DistributionSketch<Double> a = pool.acquire();
+    DistributionSketch<Double> b = pool.acquire();
+    DistributionSketch<Double> c = pool.acquire();
+    assertTrue(pool.release(a));
+    assertTrue(pool.release(b));
+    assertFalse(pool.release(c));
+    assertEquals(2, pool.size());
+    assertSame(a, pool.acquire());
+    assertSame(b, pool.acquire());
+    assertEquals(0, pool.size());
+  }
+
+  @Test
+  public void testMismatched() {
+    DistributionSketchPool<Double> pool =
+        DistributionSketches.DOUBLES.createPool(64, 2, Double.class);
+    assertThrows(IllegalArgumentException.class,
+        () -> pool.release(DistributionSketches.DOUBLES.create(128, Double.class)));
+    assertThrows(IllegalArgumentException.class,
+        () -> pool.release(DistributionSketches.FLOAT.create(64, Double.class)));
+    assertThrows(IllegalArgumentException.class,
+        () -> pool.release(DistributionSketches.DOUBLES.createConcurrent(64, Double.class)));
+    assertThrows(IllegalArgumentException.class,
+        () -> DistributionSketches.DOUBLES.createPool(64, 0, Double.class));
+  }
+}
@@ -0,0 +1,71 @@
+package com.caseystella.sketchy.sketches.statistics.distribution;
+
+import com.caseystella.sketchy.sketches.statistics.distribution.sketchimpl.DistributionSketchFormat;
+import com.caseystella.sketchy.sketches.statistics.distribution.types.sketch.SketchTypes;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class DistributionSketchesTest {
+
+  @Test
+  public void testForBackend() {
+    Assertions.assertEquals(DistributionSketches.FLOAT,
+        DistributionSketches.forBackend(Double.class, SketchTypes.FLOATS_SKETCH));
+    Assertions.assertEquals(DistributionSketches.DOUBLES,
+        DistributionSketches.forBackend(Double.class, SketchTypes.DOUBLES_SKETCH));
+    Assertions.assertEquals(DistributionSketches.LONG,
+        DistributionSketches.forBackend(Long.class, SketchTypes.FLOATS_SKETCH));
+    Assertions.assertThrows(IllegalArgumentException.class,
+        () -> DistributionSketches.forBackend(Long.class, SketchTypes.DOUBLES_SKETCH));
+  }
+
+  @Test
+  public void testKForError() {
+    for (DistributionSketches type : new DistributionSketches[] {DistributionSketches.DOUBLES,
+        DistributionSketches.FLOAT}) {
+      int k = type.getKForError(0.01);
+      DistributionSketch<Double> sketch = type.createForError(0.01, Double.class);
+      Assertions.assertEquals(k, sketch.getK());
+      Assertions.assertTrue(sketch.getNormalizedRankError() <= 0.01);
+      // and no smaller k would do
+      Assertions.assertTrue(type.create(k / 2, Double.class).getNormalizedRankError() > 0.01);
+    }
+    Assertions.assertThrows(IllegalArgumentException.class,
+        () -> DistributionSketches.DOUBLES.getKForError(1e-9));
+    Assertions.assertThrows(IllegalArgumentException.class,
+        () -> DistributionSketches.MOMENTS.getKForError(0.01));
+  }
+
+  private static int getMaxSerializedSizeBytes(DistributionSketches type, int k, long n) {
+    return DistributionSketchFormat.HEADER_SIZE
+        + type.getBackend().create(k).getMaxSerializedSizeBytes(n);
+  }
+
+  @Test
+  public void testKForBudget() {
+    int n = 100_000;
+    for (DistributionSketches type : new DistributionSketches[] {DistributionSketches.DOUBLES,
+        DistributionSketches.FLOAT}) {
+      int k = type.getKForBudget(4096, n);
+      Assertions.assertEquals(k, type.createForBudget(4096, n, Double.class).getK());
+      // the bound holds whatever the values are, unlike the size of any one sketch
+      Assertions.assertTrue(getMaxSerializedSizeBytes(type, k, n) <= 4096);
+      // and the next k up would not fit; the classic sketch only has powers of two
+      int next = type == DistributionSketches.DOUBLES ? 2 * k : k + 1;
+      Assertions.assertTrue(getMaxSerializedSizeBytes(type, next, n) > 4096);
+    }
+    Assertions.assertThrows(IllegalArgumentException.class,
+        () -> DistributionSketches.DOUBLES.getKForBudget(64, n));
+  }
+
+  @Test
+  public void testMergingEmpty() {
+    Assertions.assertFalse(Stream.<DistributionSketch<Double>>empty()
+        .collect(DistributionSketches.merging()).isPresent());
+    DistributionSketch<Double> sketch = DistributionSketches.DOUBLES.create(Double.class);
+    sketch.addDouble(1);
+    Assertions.assertEquals(2,
+        Stream.of(sketch, sketch).collect(DistributionSketches.merging()).get().getCount());
+  }
+}
@@ -4,6 +4,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 
 import com.caseystella.sketchy.utilities.SerDeUtils;
+import java.nio.LongBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
@@ -81,6 +82,22 @@ public class LongDistributionSketchTest {
     return ret;
   }
 
+  @Test
+  public void testBatchAddMatchesSingleAdd() {
+    DistributionSketch<Long> single = DistributionSketches.LONG.create(512, Long.class);
+    DistributionSketch<Long> array = DistributionSketches.LONG.create(512, Long.class);
+    DistributionSketch<Long> buffer = DistributionSketches.LONG.create(512, Long.class);
+    long[] values = new long[10000];
+    for (int i = 0; i < values.length; ++i) {
+      values[i] = (long) (1000L * Math.random()) + 1;
+      single.addLong(values[i]);
+    }
+    array.addValues(values, 0, values.length);
+    buffer.addValues(LongBuffer.wrap(values));
+    assertEquals(single, array);
+    assertEquals(single, buffer);
+  }
+
   @Test
   public void testUniformlyDistributedRandomData() {
     List<Long> values = new ArrayList<>();
@@ -0,0 +1,100 @@
+package com.caseystella.sketchy.sketches.statistics.distribution;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Sketches of different value types are merged as sketches of Number, which holds the values of
+ * any of them.
+ */
+public class MixedMergeTest {
+
+  private static DistributionSketch<Number> fill(DistributionSketches type, int k, int from,
+      int to, DescriptiveStatistics stats) {
+    DistributionSketch<Number> sketch = type.create(k, Number.class);
+    for (int i = from; i < to; ++i) {
+      sketch.addLong(i);
+      stats.addValue(i);
+    }
+    return sketch;
+  }
+
+  @SafeVarargs
+  private static DistributionSketch<Number> mergeAll(DistributionSketch<Number>... sketches) {
+    return DistributionSketches.mergeAll(Arrays.asList(sketches));
+  }
+
+  private static void validate(DistributionSketch<?> merged, DescriptiveStatistics stats) {
+    assertEquals(stats.getN(), merged.getCount());
+    assertEquals(stats.getSum(), merged.getSum().doubleValue(), 1e-6);
+    assertEquals(stats.getSumsq(), merged.getSumSquares().doubleValue(), 1e-6);
+    assertEquals(stats.getMin(), merged.getMin().get().doubleValue(), 1e-9);
+    assertEquals(stats.getMax(), merged.getMax().get().doubleValue(), 1e-9);
+    assertEquals(stats.getMean(), merged.getMean(), 1e-6);
+    assertEquals(stats.getVariance(), merged.getVariance(), 1e-3);
+    assertEquals(stats.getSkewness(), merged.getSkewness(), 1e-6);
+    assertEquals(stats.getKurtosis(), merged.getKurtosis(), 1e-6);
+  }
+
+  @Test
+  public void testDifferentK() {
+    for (DistributionSketches type : new DistributionSketches[] {DistributionSketches.DOUBLES,
+        DistributionSketches.FLOAT, DistributionSketches.LONG}) {
+      DescriptiveStatistics stats = new DescriptiveStatistics();
+      DistributionSketch<Number> big = fill(type, 256, 0, 5000, stats);
+      DistributionSketch<Number> small = fill(type, 64, 5000, 10000, stats);
+      for (DistributionSketch<Number> merged : Arrays.asList(big.merge(small), small.merge(big),
+          mergeAll(big, small))) {
+        assertEquals(type, merged.getType());
+        assertEquals(64, merged.getK());
+        validate(merged, stats);
+        assertEquals(5000, merged.getPercentile(50), 10000 * merged.getNormalizedRankError());
+      }
+    }
+  }
+
+  @Test
+  public void testLongWithFloat() {
+    DescriptiveStatistics stats = new DescriptiveStatistics();
+    DistributionSketch<Number> longs = fill(DistributionSketches.LONG, 128, 0, 5000, stats);
+    DistributionSketch<Number> floats =
+        fill(DistributionSketches.FLOAT_COMPENSATED, 128, 5000, 10000, stats);
+    for (DistributionSketch<Number> merged : Arrays.asList(longs.merge(floats),
+        floats.merge(longs), mergeAll(longs, floats))) {
+      assertEquals(DistributionSketches.FLOAT_COMPENSATED, merged.getType());
+      // widened to doubles
+      assertEquals(Double.class, merged.getMin().get().getClass());
+      validate(merged, stats);
+      assertEquals(5000, merged.getPercentile(50), 10000 * merged.getNormalizedRankError());
+    }
+  }
+
+  @Test
+  public void testWithMoments() {
+    DescriptiveStatistics stats = new DescriptiveStatistics();
+    DistributionSketch<Number> doubles = fill(DistributionSketches.DOUBLES, 128, 0, 5000, stats);
+    DistributionSketch<Number> moments =
+        fill(DistributionSketches.MOMENTS, 128, 5000, 10000, stats);
+    // the quantiles are only dropped when asked for
+    assertThrows(IllegalArgumentException.class, () -> doubles.merge(moments));
+    assertThrows(IllegalArgumentException.class, () -> moments.merge(doubles));
+    assertThrows(IllegalArgumentException.class, () -> mergeAll(doubles, moments));
+    DistributionSketch<Double> merged =
+        DistributionSketches.mergeMoments(Arrays.asList(doubles, moments));
+    assertEquals(DistributionSketches.MOMENTS, merged.getType());
+    validate(merged, stats);
+  }
+
+  @Test
+  public void testDifferentBackends() {
+    DistributionSketch<Double> doubles = DistributionSketches.DOUBLES.create(Double.class);
+    DistributionSketch<Double> floats = DistributionSketches.FLOAT.create(Double.class);
+    assertThrows(IllegalArgumentException.class, () -> doubles.merge(floats));
+    assertThrows(IllegalArgumentException.class,
+        () -> DistributionSketches.mergeAll(Arrays.asList(doubles, floats)));
+  }
+}
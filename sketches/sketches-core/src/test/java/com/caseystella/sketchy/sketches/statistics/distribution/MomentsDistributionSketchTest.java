@@ -0,0 +1,75 @@
+package com.caseystella.sketchy.sketches.statistics.distribution;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.caseystella.sketchy.utilities.SerDeUtils;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.commons.math3.random.GaussianRandomGenerator;
+import org.apache.commons.math3.random.MersenneTwister;
+import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
+import org.junit.jupiter.api.Test;
+
+public class MomentsDistributionSketchTest {
+
+  private static void validateMoments(DistributionSketch<Double> sketch,
+      DescriptiveStatistics stats) {
+    double delta = 1e-6;
+    assertEquals(stats.getN(), sketch.getCount());
+    assertEquals(stats.getSum(), sketch.getSum(), delta);
+    assertEquals(stats.getSumsq(), sketch.getSumSquares(), delta);
+    assertEquals(stats.getMean(), sketch.getMean(), delta);
+    assertEquals(stats.getVariance(), sketch.getVariance(), delta);
+    assertEquals(stats.getSkewness(), sketch.getSkewness(), delta);
+    assertEquals(stats.getKurtosis(), sketch.getKurtosis(), delta);
+    assertEquals(stats.getMin(), sketch.getMin().get(), delta);
+    assertEquals(stats.getMax(), sketch.getMax().get(), delta);
+  }
+
+  @Test
+  public void testMomentsAndMerge() {
+    GaussianRandomGenerator gaussian = new GaussianRandomGenerator(new MersenneTwister(0L));
+    DescriptiveStatistics stats = new DescriptiveStatistics();
+    List<DistributionSketch<Double>> sketches = new ArrayList<>();
+    for (int i = 0; i < 10; ++i) {
+      DistributionSketch<Double> sketch = DistributionSketches.MOMENTS.create(Double.class);
+      for (int j = 0; j < 1000; ++j) {
+        double d = gaussian.nextNormalizedDouble() + 10;
+        stats.addValue(d);
+        sketch.addDouble(d);
+      }
+      sketches.add(sketch);
+    }
+    validateMoments(DistributionSketches.mergeAll(sketches), stats);
+    validateMoments(sketches.get(0).merge(DistributionSketches.mergeAll(sketches.subList(1, 10))),
+        stats);
+  }
+
+  @Test
+  public void testPercentileThrows() {
+    DistributionSketch<Double> sketch = DistributionSketches.MOMENTS.create(Double.class);
+    sketch.addDouble(1.0);
+    assertThrows(UnsupportedOperationException.class, () -> sketch.getPercentile(50));
+    assertThrows(UnsupportedOperationException.class,
+        () -> sketch.getPercentiles(new double[] {50, 90}));
+    assertThrows(UnsupportedOperationException.class, () -> sketch.getRank(1.0));
+  }
+
+  @Test
+  public void testSerializedSize() {
+    DistributionSketch<Double> moments = DistributionSketches.MOMENTS.create(Double.class);
+    DistributionSketch<Double> doubles = DistributionSketches.DOUBLES.create(Double.class);
+    for (int i = 1; i <= 100000; ++i) {
+      moments.addDouble(i);
+      doubles.addDouble(i);
+    }
+    byte[] serialized = SerDeUtils.toBytes(moments);
+    // the fields themselves plus the class name
+    assertTrue(serialized.length < 200, "Serialized to " + serialized.length + " bytes");
+    assertTrue(10 * serialized.length < SerDeUtils.toBytes(doubles).length);
+    DistributionSketch<Double> clone = SerDeUtils.fromBytes(serialized, DistributionSketch.class);
+    assertEquals(moments, clone);
+  }
+}
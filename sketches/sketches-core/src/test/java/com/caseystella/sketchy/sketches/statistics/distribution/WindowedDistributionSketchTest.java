@@ -0,0 +1,105 @@
+package com.caseystella.sketchy.sketches.statistics.distribution;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.caseystella.sketchy.utilities.SerDeUtils;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+public class WindowedDistributionSketchTest {
+
+  private static WindowedDistributionSketch<Double> create(AtomicLong clock) {
+    // a 1 minute window of 6 buckets of 10 seconds
+    return new WindowedDistributionSketch<>(DistributionSketches.DOUBLES, 128, 60_000, 6,
+        clock::get);
+  }
+
+  @Test
+  public void testExpiry() {
+    AtomicLong clock = new AtomicLong(0);
+    WindowedDistributionSketch<Double> sketch = create(clock);
+    for (int bucket = 0; bucket < 6; ++bucket) {
+      clock.set(bucket * 10_000L);
+      sketch.addDouble(bucket);
+    }
+    assertEquals(6, sketch.getCount());
+    assertEquals(2.5, sketch.getMean(), 1e-9);
+    assertEquals(0.0, sketch.getMin().get(), 1e-9);
+
+    // the first bucket falls out of the window
+    clock.set(60_000);
+    assertEquals(5, sketch.getCount());
+    assertEquals(1.0, sketch.getMin().get(), 1e-9);
+    sketch.addDouble(6);
+    assertEquals(6, sketch.getCount());
+    assertEquals(3.5, sketch.getMean(), 1e-9);
+
+    // everything has expired
+    clock.set(1_000_000);
+    assertEquals(0, sketch.getCount());
+    sketch.addDouble(10);
+    assertEquals(1, sketch.getCount());
+    assertEquals(10.0, sketch.getMean(), 1e-9);
+  }
+
+  @Test
+  public void testMergedViewIsCached() {
+    AtomicLong clock = new AtomicLong(0);
+    WindowedDistributionSketch<Double> sketch = create(clock);
+    sketch.addDouble(1);
+    clock.set(10_000);
+    sketch.addDouble(2);
+    DistributionSketch<Double> view = sketch.snapshot();
+    assertSame(view, sketch.snapshot());
+    sketch.addDouble(3);
+    assertEquals(3, sketch.getCount());
+    assertEquals(2.0, sketch.getMean(), 1e-9);
+  }
+
+  @Test
+  public void testInvalidWindow() {
+    assertThrows(IllegalArgumentException.class,
+        () -> DistributionSketches.DOUBLES.createWindowed(128, 60_000, 0, Double.class));
+    assertThrows(IllegalArgumentException.class,
+        () -> DistributionSketches.DOUBLES.createWindowed(128, 5, 6, Double.class));
+  }
+
+  @Test
+  public void testSerDe() {
+    WindowedDistributionSketch<Double> sketch =
+        DistributionSketches.DOUBLES.createWindowed(128, 3_600_000, 60, Double.class);
+    for (int i = 1; i <= 100; ++i) {
+      sketch.addDouble(i);
+    }
+    WindowedDistributionSketch<Double> clone =
+        SerDeUtils.fromBytes(SerDeUtils.toBytes(sketch), WindowedDistributionSketch.class);
+    assertEquals(60, clone.getNumBuckets());
+    assertEquals(60_000, clone.getBucketMillis());
+    assertEquals(sketch.getCount(), clone.getCount());
+    assertEquals(sketch.getMean(), clone.getMean(), 1e-9);
+    assertEquals(sketch.getVariance(), clone.getVariance(), 1e-9);
+  }
+
+  @Test
+  public void testWriteAfterRead() {
+    for (DistributionSketches type : new DistributionSketches[] {DistributionSketches.DOUBLES,
+        DistributionSketches.FLOAT, DistributionSketches.DOUBLES_COMPENSATED}) {
+      // a window so long that the clock stays in the one bucket, so the clone adds to the bucket
+      // it read rather than starting a new one
+      WindowedDistributionSketch<Double> sketch =
+          type.createWindowed(128, Long.MAX_VALUE, 1, Double.class);
+      for (int i = 1; i <= 100; ++i) {
+        sketch.addDouble(i);
+      }
+      WindowedDistributionSketch<Double> clone =
+          SerDeUtils.fromBytes(SerDeUtils.toBytes(sketch), WindowedDistributionSketch.class);
+      for (int i = 101; i <= 200; ++i) {
+        clone.addDouble(i);
+      }
+      assertEquals(200, clone.getCount());
+      assertEquals(200, clone.getPercentile(100), 0);
+    }
+  }
+}
@@ -0,0 +1,72 @@
+package com.caseystella.sketchy.sketches.statistics.distribution.sketchimpl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.caseystella.sketchy.sketches.statistics.distribution.DistributionSketch;
+import com.caseystella.sketchy.sketches.statistics.distribution.DistributionSketches;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import org.junit.jupiter.api.Test;
+
+public class DistributionSketchFormatTest {
+
+  private <T extends Number> void validateRoundTrip(DistributionSketch<T> sketch, ByteOrder order) {
+    for (int i = 1; i <= 10000; ++i) {
+      sketch.addDouble(i);
+    }
+    int len = DistributionSketchFormat.getSerializedSizeBytes(sketch);
+    // write at an offset to make sure everything is relative to the position
+    ByteBuffer buf = ByteBuffer.allocateDirect(len + 8).order(order);
+    buf.position(8);
+    DistributionSketchFormat.write(sketch, buf);
+    assertEquals(len + 8, buf.position());
+    buf.position(8);
+
+    assertEquals(sketch.getType(), DistributionSketchFormat.getType(buf));
+    assertEquals(sketch.getK(), DistributionSketchFormat.getK(buf));
+    assertEquals(sketch.getCount(), DistributionSketchFormat.getCount(buf));
+    assertEquals(sketch.getMean(), DistributionSketchFormat.getMean(buf), 0);
+    assertEquals(sketch.getVariance(), DistributionSketchFormat.getVariance(buf), 0);
+    assertEquals(sketch.getMin().get().doubleValue(), DistributionSketchFormat.getMin(buf), 0);
+    assertEquals(sketch.getMax().get().doubleValue(), DistributionSketchFormat.getMax(buf), 0);
+
+    DistributionSketch<T> read = DistributionSketchFormat.read(buf);
+    assertEquals(sketch, read);
+    DistributionSketch<T> wrapped = DistributionSketchFormat.wrap(buf);
+    assertEquals(sketch, wrapped);
+    for (double p = 10; p < 100; p += 10) {
+      assertEquals(sketch.getPercentile(p), read.getPercentile(p), 0);
+      assertEquals(sketch.getPercentile(p), wrapped.getPercentile(p), 0);
+    }
+    assertEquals(8, buf.position());
+  }
+
+  @Test
+  public void testRoundTrip() {
+    for (ByteOrder order : new ByteOrder[] {ByteOrder.LITTLE_ENDIAN, ByteOrder.BIG_ENDIAN}) {
+      validateRoundTrip(DistributionSketches.DOUBLES.create(128, Double.class), order);
+      validateRoundTrip(DistributionSketches.FLOAT.create(128, Double.class), order);
+      validateRoundTrip(DistributionSketches.LONG.create(128, Long.class), order);
+    }
+  }
+
+  @Test
+  public void testEmpty() {
+    ByteBuffer buf = ByteBuffer
+        .wrap(DistributionSketchFormat.toBytes(DistributionSketches.DOUBLES.create(Double.class)));
+    assertEquals(0, DistributionSketchFormat.getCount(buf));
+    assertTrue(Double.isNaN(DistributionSketchFormat.getMin(buf)));
+    assertEquals(0, DistributionSketchFormat.read(buf).getCount());
+  }
+
+  @Test
+  public void testUnknownVersion() {
+    byte[] bytes =
+        DistributionSketchFormat.toBytes(DistributionSketches.DOUBLES.create(Double.class));
+    bytes[0] = 42;
+    assertThrows(IllegalStateException.class,
+        () -> DistributionSketchFormat.read(ByteBuffer.wrap(bytes)));
+  }
+}
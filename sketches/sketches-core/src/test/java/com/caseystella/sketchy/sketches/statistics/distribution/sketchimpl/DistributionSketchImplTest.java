@@ -0,0 +1,47 @@
+package com.caseystella.sketchy.sketches.statistics.distribution.sketchimpl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import com.caseystella.sketchy.sketches.statistics.distribution.DistributionSketch;
+import com.caseystella.sketchy.sketches.statistics.distribution.DistributionSketchPool;
+import com.caseystella.sketchy.sketches.statistics.distribution.DistributionSketches;
+import com.caseystella.sketchy.utilities.SerDeUtils;
+import org.junit.jupiter.api.Test;
+
+public class DistributionSketchImplTest {
+
+  @Test
+  public void testPoolReusesQuantileSketch() {
+    for (DistributionSketches type : new DistributionSketches[] {DistributionSketches.DOUBLES,
+        DistributionSketches.DOUBLES_COMPENSATED}) {
+      DistributionSketchPool<Double> pool = type.createPool(64, 1, Double.class);
+      DistributionSketch<Double> sketch = pool.acquire();
+      for (int i = 1; i <= 1000; ++i) {
+        sketch.addDouble(i);
+      }
+      Object quantiles = ((DistributionSketchImpl<?, ?>) sketch).sketch;
+      pool.release(sketch);
+      DistributionSketch<Double> reused = pool.acquire();
+      assertSame(sketch, reused);
+      assertSame(quantiles, ((DistributionSketchImpl<?, ?>) reused).sketch);
+      reused.addDouble(5);
+      assertEquals(1, reused.getCount());
+      assertEquals(5.0, reused.getPercentile(50), 0);
+    }
+  }
+
+  @Test
+  public void testResetInPlaceAfterRead() {
+    DistributionSketch<Double> sketch = DistributionSketches.DOUBLES.create(64, Double.class);
+    for (int i = 1; i <= 1000; ++i) {
+      sketch.addDouble(i);
+    }
+    DistributionSketch<Double> read =
+        SerDeUtils.fromBytes(SerDeUtils.toBytes(sketch), DistributionSketch.class);
+    Object quantiles = ((DistributionSketchImpl<?, ?>) read).sketch;
+    read.reset();
+    assertSame(quantiles, ((DistributionSketchImpl<?, ?>) read).sketch);
+    assertEquals(0, read.getCount());
+  }
+}
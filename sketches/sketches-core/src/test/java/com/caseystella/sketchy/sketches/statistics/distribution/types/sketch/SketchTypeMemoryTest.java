@@ -0,0 +1,37 @@
+package com.caseystella.sketchy.sketches.statistics.distribution.types.sketch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import org.apache.datasketches.memory.WritableMemory;
+import org.junit.jupiter.api.Test;
+
+public class SketchTypeMemoryTest {
+
+  private <S> void validateRoundTrip(SketchType<S> type) {
+    S sketch = type.createSketch();
+    for (int i = 1; i <= 10000; ++i) {
+      type.addDouble(sketch, i);
+    }
+    int len = type.getSerializedSizeBytes(sketch);
+    // leave some room in front of the sketch to make sure offsets are respected
+    ByteBuffer buffer = ByteBuffer.allocateDirect(len + 16).order(ByteOrder.nativeOrder());
+    WritableMemory mem = WritableMemory.wrap(buffer);
+    type.serialize(sketch, mem.writableRegion(16, len));
+    S wrapped = type.wrap(mem.region(16, len));
+    for (double p = 0.1; p < 1.0; p += 0.1) {
+      assertEquals(type.getPercentile(sketch, p), type.getPercentile(wrapped, p), 0);
+    }
+  }
+
+  @Test
+  public void testDoublesRoundTrip() {
+    validateRoundTrip(SketchTypes.DOUBLES_SKETCH.create(128));
+  }
+
+  @Test
+  public void testFloatsRoundTrip() {
+    validateRoundTrip(SketchTypes.FLOATS_SKETCH.create(128));
+  }
+}
@@ -0,0 +1,88 @@
+package com.caseystella.sketchy.sketches.statistics.frequency;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.caseystella.sketchy.utilities.SerDeUtils;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class FrequentItemsSketchTest {
+
+  /**
+   * Add 10 heavy hitters, item i seen 1000 * (i + 1) times, among 10000 items each seen once.
+   */
+  private static void addTalkers(FrequentItemsSketch<String> sketch, int offset) {
+    for (int i = 0; i < 10; ++i) {
+      sketch.addValue("heavy-" + i, 1000L * (i + 1));
+    }
+    for (int i = 0; i < 10000; ++i) {
+      sketch.addValue("light-" + (offset + i));
+    }
+  }
+
+  @Test
+  public void testTopK() {
+    FrequentItemsSketch<String> sketch =
+        FrequentItemsSketches.STRINGS.create(64, String.class);
+    addTalkers(sketch, 0);
+    assertEquals(55000 + 10000, sketch.getStreamLength());
+    List<FrequentItem<String>> top = sketch.getTopK(3);
+    assertEquals(3, top.size());
+    for (int i = 0; i < 3; ++i) {
+      FrequentItem<String> item = top.get(i);
+      assertEquals("heavy-" + (9 - i), item.getItem());
+      assertTrue(item.getLowerBound() <= 1000L * (10 - i));
+      assertTrue(item.getUpperBound() >= 1000L * (10 - i));
+      assertTrue(Math.abs(item.getEstimate() - 1000L * (10 - i)) <= sketch.getMaximumError());
+    }
+  }
+
+  @Test
+  public void testMerge() {
+    FrequentItemsSketch<String> left = FrequentItemsSketches.STRINGS.create(64, String.class);
+    FrequentItemsSketch<String> right = FrequentItemsSketches.STRINGS.create(128, String.class);
+    addTalkers(left, 0);
+    addTalkers(right, 10000);
+    FrequentItemsSketch<String> merged = left.merge(right);
+    assertEquals(128, merged.getMaxMapSize());
+    assertEquals(2 * 65000, merged.getStreamLength());
+    assertEquals("heavy-9", merged.getTopK(1).get(0).getItem());
+    assertTrue(Math.abs(merged.getEstimate("heavy-9") - 20000) <= merged.getMaximumError());
+  }
+
+  @Test
+  public void testLongs() {
+    FrequentItemsSketch<Long> sketch = FrequentItemsSketches.LONGS.create(Long.class);
+    for (long i = 0; i < 100000; ++i) {
+      sketch.addValue(i % 7 == 0 ? 7L : i);
+    }
+    FrequentItem<Long> top = sketch.getTopK(1).get(0);
+    assertEquals(7L, (long) top.getItem());
+    assertTrue(Math.abs(top.getEstimate() - 100000 / 7 - 1) <= sketch.getMaximumError());
+  }
+
+  @Test
+  public void testInvalidMapSize() {
+    assertThrows(IllegalArgumentException.class,
+        () -> FrequentItemsSketches.LONGS.create(1000, Long.class));
+  }
+
+  @Test
+  public void testSerDe() {
+    FrequentItemsSketch<String> sketch = FrequentItemsSketches.STRINGS.create(64, String.class);
+    addTalkers(sketch, 0);
+    FrequentItemsSketch<String> clone =
+        SerDeUtils.fromBytes(SerDeUtils.toBytes(sketch), FrequentItemsSketch.class);
+    assertEquals(sketch.getMaxMapSize(), clone.getMaxMapSize());
+    assertEquals(sketch.getStreamLength(), clone.getStreamLength());
+    assertEquals(sketch.getFrequentItems(), clone.getFrequentItems());
+
+    FrequentItemsSketch<Long> longs = FrequentItemsSketches.LONGS.create(Long.class);
+    longs.addValue(1L, 10);
+    FrequentItemsSketch<Long> longsClone =
+        SerDeUtils.fromBytes(SerDeUtils.toBytes(longs), FrequentItemsSketch.class);
+    assertEquals(10, longsClone.getEstimate(1L));
+  }
+}